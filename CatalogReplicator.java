@@ -0,0 +1,103 @@
+package com.kinoflix.kotik;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Properties;
+
+// Репликация каталога между экземплярами KinoFlix.
+// Читает журнал изменений другой базы (файл kinoflix.db другого узла) пачками
+// и применяет их к локальной базе через DatabaseManager.applyReplicated.
+//
+// Запуск: java com.kinoflix.kotik.CatalogReplicator <локальная.db> <удалённая.db> [интервал мс] [размер пачки]
+public class CatalogReplicator {
+
+    // Итог одного прохода репликации
+    static class Status {
+        final int applied;
+        final long position;
+        final long remoteHead;
+        final long lagMillis;
+
+        Status(int applied, long position, long remoteHead, long lagMillis) {
+            this.applied = applied;
+            this.position = position;
+            this.remoteHead = remoteHead;
+            this.lagMillis = lagMillis;
+        }
+
+        long lagRecords() {
+            return remoteHead - position;
+        }
+
+        @Override
+        public String toString() {
+            return "применено " + applied + ", позиция " + position + "/" + remoteHead
+                    + ", отставание " + lagRecords() + " зап. / " + lagMillis + " мс";
+        }
+    }
+
+    private final String source;
+    private final String remoteUrl;
+    private final int batchSize;
+
+    public CatalogReplicator(String remoteDbPath, int batchSize) {
+        this.source = remoteDbPath;
+        this.remoteUrl = "jdbc:sqlite:" + remoteDbPath;
+        this.batchSize = batchSize;
+    }
+
+    // Дочитать журнал удалённой базы до конца, по пачке за транзакцию.
+    // Ошибка пачки (например, SQLITE_BUSY дольше busy_timeout) откатывает её и пробрасывается:
+    // уже применённые пачки сохранены, следующий проход продолжит с той же позиции
+    public Status replicateOnce() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("open_mode", "1");   // SQLITE_OPEN_READONLY
+        props.setProperty("busy_timeout", "5000");
+        try (Connection remote = DriverManager.getConnection(remoteUrl, props)) {
+            int applied = 0;
+            long position = DatabaseManager.getReplicationPosition(source);
+            long lastCreatedAt = 0;
+            while (true) {
+                List<ChangeLog.Record> batch = ChangeLog.readAfter(remote, position, batchSize);
+                if (batch.isEmpty()) break;
+                applied += DatabaseManager.applyReplicated(source, batch);
+                position = batch.get(batch.size() - 1).seq;
+                lastCreatedAt = batch.get(batch.size() - 1).createdAt;
+                if (batch.size() < batchSize) break;
+            }
+
+            long head = ChangeLog.head(remote);
+            long lagMillis = 0;
+            if (head > position) {
+                // Возраст самой старой ещё не применённой записи
+                List<ChangeLog.Record> next = ChangeLog.readAfter(remote, position, 1);
+                if (!next.isEmpty()) lagMillis = System.currentTimeMillis() - next.get(0).createdAt;
+            } else if (applied > 0) {
+                lagMillis = System.currentTimeMillis() - lastCreatedAt;
+            }
+            return new Status(applied, position, head, lagMillis);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Использование: CatalogReplicator <локальная.db> <удалённая.db> [интервал мс] [размер пачки]");
+            System.exit(1);
+        }
+        long intervalMillis = args.length > 2 ? Long.parseLong(args[2]) : 5_000;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        DatabaseManager.connect("jdbc:sqlite:" + args[0]);
+        CatalogReplicator replicator = new CatalogReplicator(args[1], batchSize);
+        System.out.println("Узел " + DatabaseManager.getNodeId() + ": репликация из " + args[1]);
+
+        while (true) {
+            try {
+                System.out.println(replicator.replicateOnce());
+            } catch (SQLException e) {
+                System.err.println("Ошибка репликации: " + e.getMessage());
+            }
+            Thread.sleep(intervalMillis);
+        }
+    }
+}
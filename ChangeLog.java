@@ -0,0 +1,168 @@
+package com.kinoflix.kotik;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+
+// Журнал изменений (append-only) для синхронизации нескольких экземпляров KinoFlix.
+// Каждая запись: порядковый номер в этом файле (seq), узел-источник (origin) и номер
+// записи на нём (origin_seq), операция и её данные в виде key=value&key=value.
+public class ChangeLog {
+
+    public static final String ADD_USER = "add_user";
+    public static final String ADD_MOVIE = "add_movie";
+    public static final String DELETE_MOVIE = "delete_movie";
+    public static final String SET_RATINGS = "set_ratings";
+    public static final String ADD_RATING = "add_rating";
+    public static final String ADD_REVIEW = "add_review";
+
+    static class Record {
+        final long seq;
+        final String origin;
+        final long originSeq;
+        final String op;
+        final Map<String, String> data;
+        final long createdAt;
+
+        Record(long seq, String origin, long originSeq, String op, Map<String, String> data, long createdAt) {
+            this.seq = seq;
+            this.origin = origin;
+            this.originSeq = originSeq;
+            this.op = op;
+            this.data = data;
+            this.createdAt = createdAt;
+        }
+
+        @Override
+        public String toString() {
+            return seq + ": " + origin + "#" + originSeq + " " + op + " " + data;
+        }
+    }
+
+    // Запись о локальном изменении (origin_seq совпадает с seq)
+    static void append(Connection conn, String origin, String op, Map<String, String> data) throws SQLException {
+        insert(conn, origin, null, op, data, System.currentTimeMillis());
+    }
+
+    // Повторная запись чужого изменения с сохранением его источника — для цепочек A -> B -> C
+    static void append(Connection conn, Record record) throws SQLException {
+        insert(conn, record.origin, record.originSeq, record.op, record.data, record.createdAt);
+    }
+
+    // Чтение пачки записей после позиции position
+    static List<Record> readAfter(Connection conn, long position, int limit) throws SQLException {
+        List<Record> records = new ArrayList<>();
+        String sql = """
+                SELECT seq, origin, COALESCE(origin_seq, seq) AS origin_seq, op, data, created_at
+                FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, position);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new Record(
+                            rs.getLong("seq"),
+                            rs.getString("origin"),
+                            rs.getLong("origin_seq"),
+                            rs.getString("op"),
+                            decode(rs.getString("data")),
+                            rs.getLong("created_at")
+                    ));
+                }
+            }
+        }
+        return records;
+    }
+
+    // Последний номер записи в журнале (0, если журнал пуст)
+    static long head(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) AS head FROM change_log")) {
+            return rs.next() ? rs.getLong("head") : 0;
+        }
+    }
+
+    // Фильм целиком — только для add_movie
+    static Map<String, String> movieData(HelloApplication.Movie movie) {
+        Map<String, String> data = movieKey(movie);
+        data.put("tags", String.join(",", movie.tags));
+        data.put("ratings", String.join(",", movie.ratings.stream().map(String::valueOf).toList()));
+        return data;
+    }
+
+    // Только уникальные поля фильма (как в DatabaseManager.getMovieId) — для остальных операций,
+    // чтобы размер записи не рос вместе с числом оценок
+    static Map<String, String> movieKey(HelloApplication.Movie movie) {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("title", movie.title);
+        data.put("director", movie.director);
+        data.put("year", String.valueOf(movie.year));
+        return data;
+    }
+
+    static Map<String, String> userData(String name, String email) {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("name", name);
+        data.put("email", email);
+        return data;
+    }
+
+    // Фильм из данных записи (теги и оценки — если есть)
+    static HelloApplication.Movie toMovie(Map<String, String> data) {
+        List<String> tags = Arrays.stream(data.getOrDefault("tags", "").split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+        HelloApplication.Movie movie = new HelloApplication.Movie(
+                data.get("title"), data.get("director"), Integer.parseInt(data.get("year")), tags);
+        for (String r : data.getOrDefault("ratings", "").split(",")) {
+            try {
+                movie.ratings.add(Integer.parseInt(r));
+            } catch (NumberFormatException ignored) {}
+        }
+        return movie;
+    }
+
+    static String encode(Map<String, String> data) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            if (sb.length() > 0) sb.append('&');
+            sb.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    static Map<String, String> decode(String s) {
+        Map<String, String> data = new LinkedHashMap<>();
+        if (s == null || s.isEmpty()) return data;
+        for (String pair : s.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            data.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return data;
+    }
+
+    private static void insert(Connection conn, String origin, Long originSeq, String op,
+                               Map<String, String> data, long createdAt) throws SQLException {
+        String sql = "INSERT INTO change_log (origin, origin_seq, op, data, created_at) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, origin);
+            if (originSeq == null) {
+                ps.setNull(2, Types.INTEGER);
+            } else {
+                ps.setLong(2, originSeq);
+            }
+            ps.setString(3, op);
+            ps.setString(4, encode(data));
+            ps.setLong(5, createdAt);
+            ps.executeUpdate();
+        }
+    }
+}
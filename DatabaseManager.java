@@ -2,23 +2,131 @@ package com.kinoflix.kotik;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class DatabaseManager {
 
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int SQLITE_CONSTRAINT = 19;
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+    private static final int MAX_STACK_TRACES = 10;
+    private static final long ERROR_LOG_INTERVAL_MS = 1_000;
+
     private static Connection conn;
+    private static String nodeId;
+
+    // Сколько раз база была занята (SQLITE_BUSY / SQLITE_LOCKED) — для нагрузочных прогонов
+    private static final LongAdder busyErrors = new LongAdder();
+    // Все ошибки SQL: всего и на текущем потоке (чтобы нагрузочный прогон отнёс их к своей операции)
+    private static final LongAdder sqlErrors = new LongAdder();
+    private static final ThreadLocal<long[]> threadSqlErrors = ThreadLocal.withInitial(() -> new long[1]);
+    // Когда в последний раз печатали ошибку: после первых MAX_STACK_TRACES — не чаще раза в секунду
+    private static final AtomicLong lastErrorLogged = new AtomicLong();
+
+    // Фильтр Блума по email зарегистрированных пользователей:
+    // отрицательный ответ при входе/проверке без запроса к БД
+    private static volatile BloomFilter emailFilter = new BloomFilter(10_000, 0.01);
+    // Версия базы (PRAGMA data_version) и максимальный id пользователя на момент подгрузки фильтра:
+    // пользователей, добавленных другим соединением (CatalogReplicator в своём процессе), догружаем
+    private static long emailFilterVersion;
+    private static int emailFilterMaxId;
 
     // Подключение к базе и создание таблиц
     public static void connect() {
+        connect("jdbc:sqlite:kinoflix.db");
+    }
+
+    public static void connect(String url) {
         try {
             Class.forName("org.sqlite.JDBC");
-            conn = DriverManager.getConnection("jdbc:sqlite:kinoflix.db");
+            if (conn != null) conn.close();
+            conn = DriverManager.getConnection(url);
+            // Ждать чужую запись (репликатор, второй экземпляр) вместо мгновенного SQLITE_BUSY
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            }
             createTablesIfNotExist();
+            loadNodeId();
+            loadEmailFilter();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    // Создание таблиц users, movies и reviews (если не существуют)
+    // Идентификатор узла создаётся один раз и хранится в самой базе
+    private static void loadNodeId() throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT node_id FROM node_info WHERE id = 1")) {
+            if (rs.next()) {
+                nodeId = rs.getString("node_id");
+                return;
+            }
+        }
+        nodeId = UUID.randomUUID().toString();
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO node_info (id, node_id) VALUES (1, ?)")) {
+            ps.setString(1, nodeId);
+            ps.executeUpdate();
+        }
+    }
+
+    // Заполнение фильтра email один раз при подключении
+    private static synchronized void loadEmailFilter() throws SQLException {
+        long version = dataVersion();
+        List<String> emails = new ArrayList<>();
+        int maxId = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, email FROM users")) {
+            while (rs.next()) {
+                emails.add(rs.getString("email"));
+                maxId = Math.max(maxId, rs.getInt("id"));
+            }
+        }
+        BloomFilter filter = new BloomFilter(Math.max(10_000, emails.size() * 2), 0.01);
+        emails.forEach(filter::add);
+        emailFilter = filter;
+        emailFilterVersion = version;
+        emailFilterMaxId = maxId;
+    }
+
+    // Фильтр сказал "нет": если база менялась другим соединением, сначала догружаем новых пользователей
+    private static boolean mightHaveEmail(String email) {
+        if (emailFilter.mightContain(email)) return true;
+        try {
+            refreshEmailFilter();
+        } catch (SQLException e) {
+            logError(e);
+            return true;   // не знаем — пусть решит запрос к БД
+        }
+        return emailFilter.mightContain(email);
+    }
+
+    private static synchronized void refreshEmailFilter() throws SQLException {
+        // Версия читается до выборки: то, что запишут после, увидим при следующей проверке
+        long version = dataVersion();
+        if (version == emailFilterVersion) return;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, email FROM users WHERE id > ?")) {
+            ps.setInt(1, emailFilterMaxId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    emailFilter.add(rs.getString("email"));
+                    emailFilterMaxId = Math.max(emailFilterMaxId, rs.getInt("id"));
+                }
+            }
+        }
+        emailFilterVersion = version;
+    }
+
+    // Меняется, когда в базу закоммитило другое соединение (свои коммиты её не меняют)
+    private static long dataVersion() throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Создание таблиц users, movies, reviews и служебных таблиц журнала изменений (если не существуют)
     private static void createTablesIfNotExist() throws SQLException {
         String userTable = """
                 CREATE TABLE IF NOT EXISTS users (
@@ -50,10 +158,47 @@ public class DatabaseManager {
                 );
                 """;
 
+        String changeLogTable = """
+                CREATE TABLE IF NOT EXISTS change_log (
+                    seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                    origin TEXT NOT NULL,
+                    origin_seq INTEGER,
+                    op TEXT NOT NULL,
+                    data TEXT NOT NULL,
+                    created_at INTEGER NOT NULL
+                );
+                """;
+
+        // Позиция чтения чужого журнала и последняя применённая запись каждого узла-источника
+        String replicationSourcesTable = """
+                CREATE TABLE IF NOT EXISTS replication_sources (
+                    source TEXT PRIMARY KEY,
+                    position INTEGER NOT NULL
+                );
+                """;
+
+        String replicationOriginsTable = """
+                CREATE TABLE IF NOT EXISTS replication_origins (
+                    origin TEXT PRIMARY KEY,
+                    last_seq INTEGER NOT NULL
+                );
+                """;
+
+        String nodeInfoTable = """
+                CREATE TABLE IF NOT EXISTS node_info (
+                    id INTEGER PRIMARY KEY CHECK (id = 1),
+                    node_id TEXT NOT NULL
+                );
+                """;
+
         try (Statement stmt = conn.createStatement()) {
             stmt.execute(userTable);
             stmt.execute(movieTable);
             stmt.execute(reviewTable);
+            stmt.execute(changeLogTable);
+            stmt.execute(replicationSourcesTable);
+            stmt.execute(replicationOriginsTable);
+            stmt.execute(nodeInfoTable);
         }
     }
 
@@ -72,7 +217,7 @@ public class DatabaseManager {
                 ));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
         return users;
     }
@@ -90,7 +235,7 @@ public class DatabaseManager {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
         return null;
     }
@@ -130,7 +275,7 @@ public class DatabaseManager {
                 movies.add(movie);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
 
         return movies;
@@ -159,41 +304,352 @@ public class DatabaseManager {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
         return comments;
     }
 
+    // Действие с БД внутри транзакции
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    // Изменение и запись в журнал изменений выполняются в одной транзакции
+    private static synchronized void inTransaction(SqlWork work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            work.run();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Количество отзывов по каждому фильму (ключ — ReviewAnalytics.movieKey)
+    public static Map<String, Integer> countReviewsByMovie() {
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = """
+            SELECT m.title, m.director, m.year, COUNT(*) AS cnt FROM reviews r
+            JOIN movies m ON r.movie_id = m.id
+            GROUP BY r.movie_id
+        """;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                HelloApplication.Movie movie = new HelloApplication.Movie(
+                        rs.getString("title"), rs.getString("director"), rs.getInt("year"), List.of());
+                counts.merge(ReviewAnalytics.movieKey(movie), rs.getInt("cnt"), Integer::sum);
+            }
+        } catch (SQLException e) {
+            logError(e);
+        }
+        return counts;
+    }
+
     // Добавление пользователя в БД
     public static void addUser(HelloApplication.User user) {
         String sql = "INSERT INTO users (id, name, email) VALUES (?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, user.id);
-            ps.setString(2, user.name);
-            ps.setString(3, user.email);
-            ps.executeUpdate();
+        try {
+            inTransaction(() -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, user.id);
+                    ps.setString(2, user.name);
+                    ps.setString(3, user.email);
+                    ps.executeUpdate();
+                }
+                ChangeLog.append(conn, nodeId, ChangeLog.ADD_USER, ChangeLog.userData(user.name, user.email));
+            });
+            emailFilter.add(user.email);
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
+        }
+    }
+
+    // Регистрация одним запросом: id выдаёт SQLite (RETURNING), дубликаты email отсекает UNIQUE.
+    // Возвращает нового пользователя или null, если email уже занят; прочие ошибки БД
+    // (например, SQLITE_BUSY дольше busy_timeout) пробрасываются — это не "почта занята".
+    public static HelloApplication.User registerUser(String name, String email) throws SQLException {
+        String sql = "INSERT INTO users (name, email) VALUES (?, ?) RETURNING id";
+        HelloApplication.User[] registered = new HelloApplication.User[1];
+        try {
+            inTransaction(() -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, name);
+                    ps.setString(2, email);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            registered[0] = new HelloApplication.User(rs.getInt("id"), name, email);
+                        }
+                    }
+                }
+                // До коммита: после него свой же запрос по email не должен получить отказ фильтра,
+                // а data_version свои записи не меняют. При откате останется лишь ложное "может быть"
+                emailFilter.add(email);
+                ChangeLog.append(conn, nodeId, ChangeLog.ADD_USER, ChangeLog.userData(name, email));
+            });
+            return registered[0];
+        } catch (SQLException e) {
+            if (e.getErrorCode() == SQLITE_CONSTRAINT) {
+                emailFilter.add(email);
+                return null;
+            }
+            logError(e);
+            throw e;
         }
     }
 
     // Добавление фильма в БД
     public static void addMovie(HelloApplication.Movie movie) {
+        try {
+            inTransaction(() -> {
+                insertMovie(movie);
+                ChangeLog.append(conn, nodeId, ChangeLog.ADD_MOVIE, ChangeLog.movieData(movie));
+            });
+        } catch (SQLException e) {
+            logError(e);
+        }
+    }
+
+    // Удаление фильма из БД по уникальным полям (title, director, year)
+    public static void deleteMovie(HelloApplication.Movie movie) {
+        try {
+            inTransaction(() -> {
+                removeMovie(movie);
+                ChangeLog.append(conn, nodeId, ChangeLog.DELETE_MOVIE, ChangeLog.movieKey(movie));
+            });
+            ReviewAnalytics.onMovieDeleted(movie);
+        } catch (SQLException e) {
+            logError(e);
+        }
+    }
+
+    // Перезапись всех оценок фильма списком movie.ratings (правка/сброс).
+    // Новую оценку добавляет addRating — он не зависит от того, насколько свеж объект movie
+    public static void updateMovieRatings(HelloApplication.Movie movie) {
+        Integer movieId = getMovieId(movie);
+        if (movieId == null) return;
+
+        try {
+            inTransaction(() -> {
+                String ratings = joinRatings(movie.ratings);
+                writeRatings(movieId, ratings);
+                Map<String, String> data = ChangeLog.movieKey(movie);
+                data.put("ratings", ratings);
+                ChangeLog.append(conn, nodeId, ChangeLog.SET_RATINGS, data);
+            });
+        } catch (SQLException e) {
+            logError(e);
+        }
+    }
+
+    // Добавление отзыва к фильму
+    public static void addReview(HelloApplication.Movie movie, HelloApplication.User user, String comment) {
+        Integer movieId = getMovieId(movie);
+        if (movieId == null) return;
+        try {
+            inTransaction(() -> {
+                insertReview(movieId, user.id, comment);
+                Map<String, String> data = ChangeLog.movieKey(movie);
+                data.putAll(ChangeLog.userData(user.name, user.email));
+                data.put("comment", comment);
+                ChangeLog.append(conn, nodeId, ChangeLog.ADD_REVIEW, data);
+            });
+            ReviewAnalytics.onReview(movie, user);
+        } catch (SQLException e) {
+            logError(e);
+        }
+    }
+
+    // Добавление оценки к фильму: в БД оценка дописывается к уже сохранённым
+    // (в том числе пришедшим репликацией), а не переписывается списком из памяти
+    public static void addRating(HelloApplication.Movie movie, HelloApplication.User user, int rating) {
+        movie.ratings.add(rating);
+        Integer movieId = getMovieId(movie);
+        if (movieId != null) {
+            try {
+                inTransaction(() -> {
+                    appendRating(movieId, rating);
+                    Map<String, String> data = ChangeLog.movieKey(movie);
+                    data.put("rating", String.valueOf(rating));
+                    ChangeLog.append(conn, nodeId, ChangeLog.ADD_RATING, data);
+                });
+            } catch (SQLException e) {
+                logError(e);
+            }
+        }
+        ReviewAnalytics.onRating(movie, user, rating);
+    }
+
+    public static long getBusyErrorCount() {
+        return busyErrors.sum();
+    }
+
+    public static long getSqlErrorCount() {
+        return sqlErrors.sum();
+    }
+
+    // Ошибки SQL, случившиеся на текущем потоке
+    static long getThreadSqlErrorCount() {
+        return threadSqlErrors.get()[0];
+    }
+
+    // Полный стек — только для первых ошибок; дальше одна строка не чаще раза в секунду,
+    // иначе длительный прогон под нагрузкой заваливает stderr. Счётчики считают всё.
+    private static void logError(SQLException e) {
+        sqlErrors.increment();
+        threadSqlErrors.get()[0]++;
+        if (e.getErrorCode() == SQLITE_BUSY || e.getErrorCode() == SQLITE_LOCKED) {
+            busyErrors.increment();
+        }
+        long count = sqlErrors.sum();
+        if (count <= MAX_STACK_TRACES) {
+            e.printStackTrace();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastErrorLogged.get();
+        if (now - last >= ERROR_LOG_INTERVAL_MS && lastErrorLogged.compareAndSet(last, now)) {
+            System.err.println("Ошибка БД #" + count + " (код " + e.getErrorCode() + "): " + e.getMessage());
+        }
+    }
+
+    // Идентификатор этого экземпляра (узла) в журнале изменений
+    public static String getNodeId() {
+        return nodeId;
+    }
+
+    // До какой записи журнала источника source уже дочитали
+    public static long getReplicationPosition(String source) {
+        try {
+            return readPosition(source);
+        } catch (SQLException e) {
+            logError(e);
+        }
+        return 0;
+    }
+
+    private static long readPosition(String source) throws SQLException {
+        String sql = "SELECT position FROM replication_sources WHERE source = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, source);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong("position") : 0;
+            }
+        }
+    }
+
+    // Применение пачки записей чужого журнала одной транзакцией.
+    // Повторы отбрасываются по позиции источника и по номеру записи на узле-источнике,
+    // поэтому одну и ту же пачку можно применять сколько угодно раз.
+    // Возвращает число реально применённых записей; при ошибке пачка откатывается
+    // и исключение уходит вызывающему (CatalogReplicator), чтобы сбой был виден.
+    public static int applyReplicated(String source, List<ChangeLog.Record> records) throws SQLException {
+        int[] applied = {0};
+        inTransaction(() -> {
+            long position = readPosition(source);
+            Map<String, Long> originSeqs = new HashMap<>();
+            for (ChangeLog.Record record : records) {
+                if (record.seq <= position) continue;
+                position = record.seq;
+                if (record.origin.equals(nodeId)) continue;
+
+                Long lastSeq = originSeqs.get(record.origin);
+                if (lastSeq == null) lastSeq = getOriginSeq(record.origin);
+                originSeqs.put(record.origin, lastSeq);
+                if (record.originSeq <= lastSeq) continue;
+
+                applyRecord(record);
+                ChangeLog.append(conn, record);
+                originSeqs.put(record.origin, record.originSeq);
+                applied[0]++;
+            }
+            for (Map.Entry<String, Long> entry : originSeqs.entrySet()) {
+                upsert("INSERT INTO replication_origins (origin, last_seq) VALUES (?, ?) "
+                        + "ON CONFLICT(origin) DO UPDATE SET last_seq = excluded.last_seq", entry.getKey(), entry.getValue());
+            }
+            upsert("INSERT INTO replication_sources (source, position) VALUES (?, ?) "
+                    + "ON CONFLICT(source) DO UPDATE SET position = excluded.position", source, position);
+        });
+        return applied[0];
+    }
+
+    private static void applyRecord(ChangeLog.Record record) throws SQLException {
+        Map<String, String> data = record.data;
+        switch (record.op) {
+            case ChangeLog.ADD_USER -> {
+                String sql = "INSERT OR IGNORE INTO users (name, email) VALUES (?, ?)";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, data.get("name"));
+                    ps.setString(2, data.get("email"));
+                    ps.executeUpdate();
+                }
+                // Добавляем сразу: отзывы этой же пачки ищут пользователя через getUserByEmail
+                emailFilter.add(data.get("email"));
+            }
+            case ChangeLog.ADD_MOVIE -> {
+                HelloApplication.Movie movie = ChangeLog.toMovie(data);
+                if (getMovieId(movie) == null) {
+                    insertMovie(movie);
+                }
+            }
+            case ChangeLog.DELETE_MOVIE -> removeMovie(ChangeLog.toMovie(data));
+            case ChangeLog.SET_RATINGS -> {
+                Integer movieId = getMovieId(ChangeLog.toMovie(data));
+                if (movieId != null) {
+                    writeRatings(movieId, data.getOrDefault("ratings", ""));
+                }
+            }
+            case ChangeLog.ADD_RATING -> {
+                Integer movieId = getMovieId(ChangeLog.toMovie(data));
+                if (movieId != null) {
+                    appendRating(movieId, Integer.parseInt(data.get("rating")));
+                }
+            }
+            case ChangeLog.ADD_REVIEW -> {
+                Integer movieId = getMovieId(ChangeLog.toMovie(data));
+                HelloApplication.User user = getUserByEmail(data.get("email"));
+                if (movieId != null && user != null) {
+                    insertReview(movieId, user.id, data.get("comment"));
+                }
+            }
+            default -> System.err.println("Неизвестная операция в журнале: " + record);
+        }
+    }
+
+    private static long getOriginSeq(String origin) throws SQLException {
+        String sql = "SELECT last_seq FROM replication_origins WHERE origin = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, origin);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong("last_seq") : 0;
+            }
+        }
+    }
+
+    private static void upsert(String sql, String key, long value) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ps.setLong(2, value);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertMovie(HelloApplication.Movie movie) throws SQLException {
         String sql = "INSERT INTO movies (title, director, year, tags, ratings) VALUES (?, ?, ?, ?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, movie.title);
             ps.setString(2, movie.director);
             ps.setInt(3, movie.year);
             ps.setString(4, String.join(",", movie.tags));
-            ps.setString(5, movie.ratings.isEmpty() ? "" : String.join(",", movie.ratings.stream().map(String::valueOf).toList()));
+            ps.setString(5, joinRatings(movie.ratings));
             ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    // Удаление фильма из БД по уникальным полям (title, director, year)
-    public static void deleteMovie(HelloApplication.Movie movie) {
+    private static void removeMovie(HelloApplication.Movie movie) throws SQLException {
         Integer movieId = getMovieId(movie);
         if (movieId != null) {
             // Сначала удалить отзывы к этому фильму
@@ -201,8 +657,6 @@ public class DatabaseManager {
             try (PreparedStatement ps = conn.prepareStatement(deleteReviewsSql)) {
                 ps.setInt(1, movieId);
                 ps.executeUpdate();
-            } catch (SQLException e) {
-                e.printStackTrace();
             }
         }
 
@@ -212,43 +666,47 @@ public class DatabaseManager {
             ps.setString(2, movie.director);
             ps.setInt(3, movie.year);
             ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    // Обновление рейтингов фильма (удаляем и заново добавляем фильм — можно оптимизировать)
-    public static void updateMovieRatings(HelloApplication.Movie movie) {
-        Integer movieId = getMovieId(movie);
-        if (movieId == null) return;
+    private static void appendRating(int movieId, int rating) throws SQLException {
+        String sql = """
+            UPDATE movies SET ratings = CASE WHEN ratings IS NULL OR ratings = '' THEN ? ELSE ratings || ',' || ? END
+            WHERE id = ?
+        """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, String.valueOf(rating));
+            ps.setString(2, String.valueOf(rating));
+            ps.setInt(3, movieId);
+            ps.executeUpdate();
+        }
+    }
 
+    private static void writeRatings(int movieId, String ratings) throws SQLException {
         String sql = "UPDATE movies SET ratings = ? WHERE id = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, movie.ratings.isEmpty() ? "" : String.join(",", movie.ratings.stream().map(String::valueOf).toList()));
+            ps.setString(1, ratings);
             ps.setInt(2, movieId);
             ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    // Добавление отзыва к фильму
-    public static void addReview(HelloApplication.Movie movie, HelloApplication.User user, String comment) {
-        Integer movieId = getMovieId(movie);
-        if (movieId == null) return;
+    private static void insertReview(int movieId, int userId, String comment) throws SQLException {
         String sql = "INSERT INTO reviews (movie_id, user_id, comment) VALUES (?, ?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, movieId);
-            ps.setInt(2, user.id);
+            ps.setInt(2, userId);
             ps.setString(3, comment);
             ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
+    private static String joinRatings(List<Integer> ratings) {
+        return ratings.isEmpty() ? "" : String.join(",", ratings.stream().map(String::valueOf).toList());
+    }
+
 
-    // Получить максимальный ID пользователя для генерации нового
+    // Получить максимальный ID пользователя (для регистрации есть атомарный registerUser)
     public static int getMaxUserId() {
         String sql = "SELECT MAX(id) AS max_id FROM users";
         try (Statement stmt = conn.createStatement();
@@ -257,13 +715,14 @@ public class DatabaseManager {
                 return rs.getInt("max_id");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
         return 0;
     }
 
     // Проверить, есть ли пользователь с таким email
     public static boolean isEmailExists(String email) {
+        if (!mightHaveEmail(email)) return false;
         String sql = "SELECT COUNT(*) AS cnt FROM users WHERE email = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, email);
@@ -271,13 +730,14 @@ public class DatabaseManager {
                 return rs.next() && rs.getInt("cnt") > 0;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
         return false;
     }
 
     // Получить пользователя по email
     public static HelloApplication.User getUserByEmail(String email) {
+        if (!mightHaveEmail(email)) return null;
         String sql = "SELECT id, name, email FROM users WHERE email = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, email);
@@ -291,7 +751,7 @@ public class DatabaseManager {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logError(e);
         }
         return null;
     }
@@ -0,0 +1,164 @@
+package com.kinoflix.kotik;
+
+import java.util.*;
+
+// Сравнение FuzzySearchIndex с текущим линейным поиском через contains().
+// Запуск: java com.kinoflix.kotik.FuzzySearchBenchmark [кол-во фильмов] [кол-во запросов]
+//
+// Каталог: названия из 1-4 слов без номеров; словарь — реальные слова плюс
+// сгенерированные из слогов, частоты по закону Ципфа (частые слова встречаются
+// в десятках тысяч названий). Запросы — реальные названия и режиссёры с опечатками.
+public class FuzzySearchBenchmark {
+
+    private static final String[] REAL_WORDS = {
+            "the", "of", "dark", "night", "knight", "star", "war", "wars", "lord", "rings", "matrix", "inception",
+            "dune", "alien", "blade", "runner", "godfather", "pulp", "fiction", "club", "fight", "green", "mile",
+            "space", "odyssey", "king", "lion", "toy", "story", "return", "empire", "back", "hope", "love", "city",
+            "интерстеллар", "брат", "сталкер", "солярис", "зеркало", "операция", "ирония", "судьбы", "москва", "слезам"
+    };
+    private static final String[] SYLLABLES = {
+            "ka", "ro", "mi", "ten", "sha", "lo", "vek", "da", "ri", "mon", "sel", "tor", "ne", "vi", "gar",
+            "bel", "zu", "pra", "kin", "os", "ta", "lem", "dor", "fi", "nu", "sta", "rel", "quo", "ban", "it"
+    };
+    private static final String[][] REAL_TITLES = {
+            {"Inception", "Christopher Nolan"}, {"The Matrix", "Lana Wachowski"}, {"The Dark Knight", "Christopher Nolan"},
+            {"Interstellar", "Christopher Nolan"}, {"The Lord of the Rings", "Peter Jackson"}, {"Сталкер", "Андрей Тарковский"},
+            {"Ирония судьбы", "Эльдар Рязанов"}, {"Blade Runner", "Ridley Scott"}, {"Pulp Fiction", "Quentin Tarantino"}
+    };
+    private static final String[] FIXED_QUERIES = {
+            "Incepton", "matirx", "dark nigth", "Nolna", "Интерстелар", "lord of teh rigns", "Тарковски", "blade runer"
+    };
+
+    public static void main(String[] args) {
+        int movieCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random random = new Random(42);
+
+        List<String> vocabulary = new ArrayList<>(Arrays.asList(REAL_WORDS));
+        Set<String> seen = new HashSet<>(vocabulary);
+        while (vocabulary.size() < 30_000) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            if (seen.add(word.toString())) vocabulary.add(word.toString());
+        }
+        Collections.shuffle(vocabulary, random);
+        List<String> directors = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            directors.add(capitalize(zipf(vocabulary, random)) + " " + capitalize(zipf(vocabulary, random)));
+        }
+
+        List<HelloApplication.Movie> movies = new ArrayList<>(movieCount);
+        for (String[] real : REAL_TITLES) {
+            movies.add(new HelloApplication.Movie(real[0], real[1], 2000, List.of("classic")));
+        }
+        while (movies.size() < movieCount) {
+            int words = 1 + random.nextInt(4);
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if (w > 0) title.append(' ');
+                title.append(zipf(vocabulary, random));
+            }
+            movies.add(new HelloApplication.Movie(capitalize(title.toString()), directors.get(random.nextInt(directors.size())),
+                    1950 + random.nextInt(75), List.of("tag" + random.nextInt(20))));
+        }
+
+        // Запросы: фиксированные плюс случайные названия с одной опечаткой
+        List<String> queries = new ArrayList<>(Arrays.asList(FIXED_QUERIES));
+        while (queries.size() < queryCount) {
+            queries.add(typo(movies.get(random.nextInt(movieCount)).title, random));
+        }
+
+        long start = System.nanoTime();
+        FuzzySearchIndex index = new FuzzySearchIndex(movies);
+        System.out.printf("Построение индекса: %d фильмов за %d мс%n", index.size(), (System.nanoTime() - start) / 1_000_000);
+
+        // Прогрев
+        for (int i = 0; i < 3; i++) {
+            for (String query : queries) {
+                index.search(query, 10);
+            }
+        }
+
+        for (String query : FIXED_QUERIES) {
+            long t0 = System.nanoTime();
+            List<HelloApplication.Movie> found = index.search(query, 10);
+            System.out.printf("  %-20s %.3f мс -> %s%n", query, (System.nanoTime() - t0) / 1e6,
+                    found.isEmpty() ? "ничего" : found.get(0).title + " / " + found.get(0).director);
+        }
+
+        // Каждый способ меряем отдельным проходом: мусор линейного поиска не должен
+        // попадать в сборки мусора во время замеров индекса
+        long[] linear = new long[queries.size()];
+        int linearHits = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long t0 = System.nanoTime();
+            String lower = queries.get(i).toLowerCase();
+            List<HelloApplication.Movie> found = movies.stream().filter(m ->
+                    m.title.toLowerCase().contains(lower) ||
+                            m.director.toLowerCase().contains(lower) ||
+                            m.tags.stream().anyMatch(tag -> tag.toLowerCase().contains(lower))
+            ).toList();
+            linear[i] = System.nanoTime() - t0;
+            if (!found.isEmpty()) linearHits++;
+        }
+
+        System.gc();
+        long[] fuzzy = new long[queries.size()];
+        int fuzzyHits = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long t0 = System.nanoTime();
+            List<HelloApplication.Movie> found = index.search(queries.get(i), 10);
+            fuzzy[i] = System.nanoTime() - t0;
+            if (!found.isEmpty()) fuzzyHits++;
+        }
+
+        report("Линейный contains()", linear, linearHits, queries.size());
+        report("FuzzySearchIndex", fuzzy, fuzzyHits, queries.size());
+
+        Integer[] slowest = new Integer[queries.size()];
+        for (int i = 0; i < slowest.length; i++) slowest[i] = i;
+        Arrays.sort(slowest, (a, b) -> Long.compare(fuzzy[b], fuzzy[a]));
+        for (int i = 0; i < Math.min(3, slowest.length); i++) {
+            System.out.printf("  медленный запрос: %-30s %.3f мс%n", queries.get(slowest[i]), fuzzy[slowest[i]] / 1e6);
+        }
+    }
+
+    // Слово по закону Ципфа: первые слова словаря встречаются чаще всего
+    private static String zipf(List<String> vocabulary, Random random) {
+        double u = random.nextDouble();
+        int index = (int) Math.floor(Math.pow(vocabulary.size(), u)) - 1;
+        return vocabulary.get(Math.max(0, Math.min(index, vocabulary.size() - 1)));
+    }
+
+    private static String capitalize(String s) {
+        return s.isEmpty() ? s : s.substring(0, 1).toUpperCase() + s.substring(1);
+    }
+
+    private static String typo(String title, Random random) {
+        StringBuilder sb = new StringBuilder(title);
+        int pos = random.nextInt(Math.max(1, sb.length() - 1));
+        switch (random.nextInt(3)) {
+            case 0 -> sb.deleteCharAt(pos);
+            case 1 -> sb.insert(pos, 'x');
+            default -> {
+                if (pos + 1 < sb.length()) {
+                    char c = sb.charAt(pos);
+                    sb.setCharAt(pos, sb.charAt(pos + 1));
+                    sb.setCharAt(pos + 1, c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void report(String name, long[] nanos, int hits, int total) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-22s p50=%.3f мс p99=%.3f мс max=%.3f мс, найдено %d/%d%n", name,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6,
+                sorted[sorted.length - 1] / 1e6,
+                hits, total);
+    }
+}
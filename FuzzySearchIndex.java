@@ -0,0 +1,419 @@
+package com.kinoflix.kotik;
+
+import java.util.*;
+
+// Нечёткий поиск по названию и режиссёру с учётом опечаток.
+// Двухуровневый индекс: каждое слово запроса ищется с опечатками в словаре
+// (окрестность удалений, как в SymSpell, + ограниченное расстояние Дамерау-Левенштейна),
+// затем строки, содержащие похожие слова для всех слов запроса, проверяются целиком.
+// Кириллица транслитерируется в латиницу, поэтому "Интерстелар" находит
+// и "Interstellar", и "Интерстеллар".
+public class FuzzySearchIndex {
+
+    private static final int MAX_WORD_DISTANCE = 2;
+    private static final int MAX_VERIFIED = 500;
+    private static final int MAX_SCANNED = 100_000;
+    private static final int MIN_FILTER_WORD = 3;
+
+    private static final Map<Character, String> TRANSLIT = new HashMap<>();
+
+    static {
+        String[][] table = {
+                {"а", "a"}, {"б", "b"}, {"в", "v"}, {"г", "g"}, {"д", "d"}, {"е", "e"}, {"ё", "e"},
+                {"ж", "zh"}, {"з", "z"}, {"и", "i"}, {"й", "i"}, {"к", "k"}, {"л", "l"}, {"м", "m"},
+                {"н", "n"}, {"о", "o"}, {"п", "p"}, {"р", "r"}, {"с", "s"}, {"т", "t"}, {"у", "u"},
+                {"ф", "f"}, {"х", "h"}, {"ц", "ts"}, {"ч", "ch"}, {"ш", "sh"}, {"щ", "sch"}, {"ъ", ""},
+                {"ы", "y"}, {"ь", ""}, {"э", "e"}, {"ю", "yu"}, {"я", "ya"}
+        };
+        for (String[] pair : table) {
+            TRANSLIT.put(pair[0].charAt(0), pair[1]);
+        }
+    }
+
+    // Одна индексируемая строка (название или режиссёр); одинаковые строки разных фильмов общие
+    private static class Entry {
+        final List<HelloApplication.Movie> movies = new ArrayList<>();
+        final String text;
+        final String[] words;
+        final int[] wordIds;
+        final boolean title;
+
+        Entry(String text, String[] words, int[] wordIds, boolean title) {
+            this.text = text;
+            this.words = words;
+            this.wordIds = wordIds;
+            this.title = title;
+        }
+    }
+
+    // Растущий массив int без упаковки
+    private static class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+    }
+
+    // Похожие слова словаря для одного слова запроса и расстояния до них, ближайшие первыми
+    private static class WordMatches {
+        final IntList ids = new IntList();
+        final IntList distances = new IntList();
+        long postings;
+    }
+
+    // Строки: название/режиссёр -> Entry
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> entryIds = new HashMap<>();
+    private final Map<HelloApplication.Movie, int[]> entriesByMovie = new IdentityHashMap<>();
+
+    // Словарь: слово -> строки, в которых оно встречается;
+    // строка, полученная удалением до двух букв -> слова, из которых она получается
+    private final List<String> words = new ArrayList<>();
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<IntList> wordEntries = new ArrayList<>();
+    private final Map<String, IntList> wordDeletes = new HashMap<>();
+
+    // Рабочие массивы запроса: отметки по номеру запроса вместо очистки
+    private int[] wordMarks = new int[0];
+    private int[] entryMarks = new int[0];
+    private int[] entryBounds = new int[0];
+    private int stamp;
+
+    public FuzzySearchIndex() {
+    }
+
+    public FuzzySearchIndex(Collection<HelloApplication.Movie> movies) {
+        for (HelloApplication.Movie movie : movies) {
+            add(movie);
+        }
+    }
+
+    public synchronized void add(HelloApplication.Movie movie) {
+        if (entriesByMovie.containsKey(movie)) return;
+        int titleId = entryId(normalize(movie.title), true);
+        int directorId = entryId(normalize(movie.director), false);
+        entries.get(titleId).movies.add(movie);
+        entries.get(directorId).movies.add(movie);
+        entriesByMovie.put(movie, new int[]{titleId, directorId});
+    }
+
+    public synchronized void remove(HelloApplication.Movie movie) {
+        int[] ids = entriesByMovie.remove(movie);
+        if (ids == null) return;
+        for (int id : ids) {
+            entries.get(id).movies.removeIf(m -> m == movie);
+        }
+    }
+
+    public synchronized int size() {
+        return entriesByMovie.size();
+    }
+
+    // Поиск фильмов, у которых название или режиссёр похожи на запрос
+    public synchronized List<HelloApplication.Movie> search(String query, int limit) {
+        if (stamp > Integer.MAX_VALUE / 2) {
+            Arrays.fill(wordMarks, 0);
+            Arrays.fill(entryMarks, 0);
+            stamp = 0;
+        }
+        String q = normalize(query);
+        if (q.isEmpty()) return List.of();
+        int maxDistance = maxDistance(q);
+        String[] queryWords = q.split(" ");
+
+        // Фильтруем по словам от 3 букв: в коротких ("of", "fo") опечатку по словарю не найти,
+        // их проверит сравнение всей строки
+        List<String> filterWords = new ArrayList<>();
+        for (String word : queryWords) {
+            if (word.length() >= MIN_FILTER_WORD) filterWords.add(word);
+        }
+        if (filterWords.isEmpty()) filterWords.addAll(Arrays.asList(queryWords));
+
+        // Похожие слова словаря для каждого слова запроса; самое редкое — первым.
+        // Допуск на слово — весь допуск запроса: обе опечатки могут быть в одном слове ("dark nigth")
+        List<WordMatches> matches = new ArrayList<>();
+        for (String word : filterWords) {
+            WordMatches matched = matchWords(word, Math.min(maxDistance, word.length() - 1));
+            if (matched.ids.size == 0) {
+                // Пропущенный пробел ("darkknight"): слово из двух слов словаря
+                List<WordMatches> halves = splitWord(word);
+                if (halves == null) return List.of();
+                matches.addAll(halves);
+                continue;
+            }
+            matches.add(matched);
+        }
+        matches.sort(Comparator.comparingLong(m -> m.postings));
+
+        // Кандидаты — строки с похожим первым словом (ближайшие слова первыми, не больше лимита) ...
+        // entryBounds — сумма расстояний по словам: оценка снизу для расстояния всей строки
+        int current = ++stamp;
+        IntList candidates = new IntList();
+        WordMatches first = matches.get(0);
+        int cap = matches.size() == 1 ? MAX_VERIFIED : MAX_SCANNED;
+        for (int i = 0; i < first.ids.size && candidates.size < cap; i++) {
+            IntList postings = wordEntries.get(first.ids.data[i]);
+            for (int j = 0; j < postings.size && candidates.size < cap; j++) {
+                int id = postings.data[j];
+                if (entryMarks[id] != current) {
+                    entryMarks[id] = current;
+                    entryBounds[id] = first.distances.data[i];
+                    candidates.add(id);
+                }
+            }
+        }
+        // ... в которых есть похожее слово и для каждого следующего слова запроса.
+        // Идём по постингам похожих слов (только массивы int), отмечая уцелевших кандидатов;
+        // слова идут по возрастанию расстояния, поэтому первое попадание строки — лучшее
+        for (WordMatches matched : matches.subList(1, matches.size())) {
+            int previous = current;
+            current = ++stamp;
+            for (int i = 0; i < matched.ids.size; i++) {
+                int distance = matched.distances.data[i];
+                IntList postings = wordEntries.get(matched.ids.data[i]);
+                for (int j = 0; j < postings.size; j++) {
+                    int id = postings.data[j];
+                    if (entryMarks[id] == previous && entryBounds[id] + distance <= maxDistance) {
+                        entryMarks[id] = current;
+                        entryBounds[id] += distance;
+                    }
+                }
+            }
+            IntList kept = new IntList();
+            for (int i = 0; i < candidates.size; i++) {
+                if (entryMarks[candidates.data[i]] == current) kept.add(candidates.data[i]);
+            }
+            candidates = kept;
+        }
+
+        // Проверка всей строки — сначала кандидаты с меньшей оценкой; порядок результатов:
+        // расстояние, затем названия раньше режиссёров, затем близость длины.
+        // Если строк с расстоянием не больше текущей оценки уже хватает на limit фильмов,
+        // остальные (с оценкой больше) в топ не попадут
+        List<long[]> scored = new ArrayList<>();
+        int verified = 0;
+        int found = 0;
+        for (int bound = 0; bound <= maxDistance && verified < MAX_VERIFIED && found < limit; bound++) {
+            for (int i = 0; i < candidates.size && verified < MAX_VERIFIED; i++) {
+                if (entryBounds[candidates.data[i]] != bound) continue;
+                Entry entry = entries.get(candidates.data[i]);
+                if (entry.movies.isEmpty()) continue;
+                verified++;
+                int distance = distance(q, queryWords.length, entry, maxDistance);
+                if (distance > maxDistance) continue;
+                long score = ((long) distance * 2 + (entry.title ? 0 : 1)) * 1_000_000L
+                        + Math.abs(entry.text.length() - q.length());
+                scored.add(new long[]{score, candidates.data[i], distance});
+            }
+            for (long[] e : scored) {
+                if (e[2] == bound) found += entries.get((int) e[1]).movies.size();
+            }
+        }
+        scored.sort(Comparator.comparingLong(e -> e[0]));
+
+        Set<HelloApplication.Movie> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<HelloApplication.Movie> ordered = new ArrayList<>();
+        for (long[] e : scored) {
+            for (HelloApplication.Movie movie : entries.get((int) e[1]).movies) {
+                if (ordered.size() >= limit) return ordered;
+                if (result.add(movie)) ordered.add(movie);
+            }
+        }
+        return ordered;
+    }
+
+    // Нижний регистр, транслитерация, только буквы/цифры через одиночный пробел
+    static String normalize(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = true;
+        for (char c : s.toLowerCase().toCharArray()) {
+            String translit = TRANSLIT.get(c);
+            if (translit != null) {
+                sb.append(translit);
+                space = false;
+            } else if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int len = sb.length();
+        if (len > 0 && sb.charAt(len - 1) == ' ') sb.setLength(len - 1);
+        return sb.toString();
+    }
+
+    // Ограниченное расстояние Дамерау-Левенштейна (optimal string alignment).
+    // Если расстояние больше max, возвращает max + 1.
+    static int boundedDistance(String a, String b, int max) {
+        int n = a.length(), m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        // Считаем только полосу |i - j| <= max: клетки вне её заведомо больше max
+        int inf = max + 1;
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = Math.min(j, inf);
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max), to = Math.min(m, i + max);
+            cur[0] = Math.min(i, inf);
+            if (from > 1) cur[from - 1] = inf;
+            int rowMin = from == 1 ? cur[0] : inf;
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, prev2[j - 2] + 1);
+                }
+                cur[j] = Math.min(value, inf);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (to < m) cur[to + 1] = inf;
+            if (rowMin > max) return max + 1;
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[m], max + 1);
+    }
+
+    private int entryId(String text, boolean title) {
+        String key = (title ? "t:" : "d:") + text;
+        Integer existing = entryIds.get(key);
+        if (existing != null) return existing;
+
+        String[] textWords = text.isEmpty() ? new String[0] : text.split(" ");
+        int[] ids = Arrays.stream(textWords).mapToInt(this::wordId).distinct().toArray();
+        int id = entries.size();
+        entries.add(new Entry(text, textWords, ids, title));
+        entryIds.put(key, id);
+        for (int wordId : ids) {
+            wordEntries.get(wordId).add(id);
+        }
+        if (entryMarks.length < entries.size()) {
+            entryMarks = Arrays.copyOf(entryMarks, entries.size() * 2);
+            entryBounds = Arrays.copyOf(entryBounds, entries.size() * 2);
+        }
+        return id;
+    }
+
+    private int wordId(String word) {
+        Integer existing = wordIds.get(word);
+        if (existing != null) return existing;
+        int id = words.size();
+        words.add(word);
+        wordIds.put(word, id);
+        wordEntries.add(new IntList());
+        for (String variant : deletes(word, MAX_WORD_DISTANCE)) {
+            wordDeletes.computeIfAbsent(variant, v -> new IntList()).add(id);
+        }
+        if (wordMarks.length < words.size()) wordMarks = Arrays.copyOf(wordMarks, words.size() * 2);
+        return id;
+    }
+
+    // Слова словаря на расстоянии не больше budget, ближайшие первыми.
+    // Если расстояние между словами не больше k, то из обоих можно получить общую строку,
+    // удалив не больше k букв в каждом, — поэтому кандидаты ищутся по удалениям без потерь
+    private WordMatches matchWords(String word, int budget) {
+        WordMatches result = new WordMatches();
+        if (budget == 0) {
+            Integer id = wordIds.get(word);
+            if (id != null) {
+                result.ids.add(id);
+                result.distances.add(0);
+                result.postings = wordEntries.get(id).size;
+            }
+            return result;
+        }
+
+        int current = ++stamp;
+        IntList candidates = new IntList();
+        for (String variant : deletes(word, budget)) {
+            IntList list = wordDeletes.get(variant);
+            if (list == null) continue;
+            for (int i = 0; i < list.size; i++) {
+                int id = list.data[i];
+                if (wordMarks[id] != current) {
+                    wordMarks[id] = current;
+                    candidates.add(id);
+                }
+            }
+        }
+
+        List<int[]> found = new ArrayList<>();
+        for (int i = 0; i < candidates.size; i++) {
+            int id = candidates.data[i];
+            int distance = boundedDistance(word, words.get(id), budget);
+            if (distance <= budget) found.add(new int[]{id, distance});
+        }
+        found.sort(Comparator.comparingInt(e -> e[1]));
+        for (int[] e : found) {
+            result.ids.add(e[0]);
+            result.distances.add(e[1]);
+            result.postings += wordEntries.get(e[0]).size;
+        }
+        return result;
+    }
+
+    // Разбиение слова на два слова словаря без опечаток или null
+    private List<WordMatches> splitWord(String word) {
+        for (int i = 1; i < word.length(); i++) {
+            WordMatches left = matchWords(word.substring(0, i), 0);
+            if (left.ids.size == 0) continue;
+            WordMatches right = matchWords(word.substring(i), 0);
+            if (right.ids.size > 0) return List.of(left, right);
+        }
+        return null;
+    }
+
+    // Запрос сравнивается со всей строкой и с каждым окном из того же числа слов
+    // (±1 — на пропущенный или лишний пробел)
+    private static int distance(String query, int queryWords, Entry entry, int max) {
+        if (entry.text.contains(query)) return 0;
+        int best = boundedDistance(query, entry.text, max);
+        for (int size = Math.max(1, queryWords - 1); size <= queryWords + 1 && size < entry.words.length; size++) {
+            for (int start = 0; start + size <= entry.words.length && best > 0; start++) {
+                // Окна, длина которых отличается больше чем на max, заведомо не подходят — не склеиваем их
+                int length = size - 1;
+                for (int w = start; w < start + size; w++) length += entry.words[w].length();
+                if (Math.abs(length - query.length()) > max) continue;
+                String window = String.join(" ", Arrays.copyOfRange(entry.words, start, start + size));
+                best = Math.min(best, boundedDistance(query, window, max));
+            }
+        }
+        return best;
+    }
+
+    // Допустимое число опечаток от длины запроса (как fuzziness AUTO в Elasticsearch)
+    private static int maxDistance(String q) {
+        int len = q.length();
+        if (len < 3) return 0;
+        if (len <= 5) return 1;
+        return 2;
+    }
+
+    // Само слово и все строки, получаемые из него удалением от 1 до max букв (кроме пустой)
+    private static Set<String> deletes(String word, int max) {
+        Set<String> result = new HashSet<>();
+        result.add(word);
+        Set<String> level = Set.of(word);
+        for (int d = 0; d < max; d++) {
+            Set<String> next = new HashSet<>();
+            for (String s : level) {
+                for (int i = 0; i < s.length() && s.length() > 1; i++) {
+                    String shorter = s.substring(0, i) + s.substring(i + 1);
+                    if (result.add(shorter)) next.add(shorter);
+                }
+            }
+            level = next;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package com.kinoflix.kotik;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzySearchIndexTests {
+
+    private final HelloApplication.Movie inception = new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi"));
+    private final HelloApplication.Movie interstellar = new HelloApplication.Movie("Interstellar", "Nolan", 2014, List.of("sci-fi"));
+    private final HelloApplication.Movie stalker = new HelloApplication.Movie("Сталкер", "Тарковский", 1979, List.of("драма"));
+    private final HelloApplication.Movie lotr = new HelloApplication.Movie("The Lord of the Rings", "Jackson", 2001, List.of("fantasy"));
+
+    private final FuzzySearchIndex index = new FuzzySearchIndex(List.of(inception, interstellar, stalker, lotr));
+
+    @Test
+    void testNormalizeTransliterates() {
+        assertEquals("interstellar", FuzzySearchIndex.normalize("Интерстеллар"));
+        assertEquals("the lord of the rings", FuzzySearchIndex.normalize("  The Lord, of the Rings!"));
+    }
+
+    @Test
+    void testBoundedDistance() {
+        assertEquals(1, FuzzySearchIndex.boundedDistance("incepton", "inception", 2));
+        assertEquals(1, FuzzySearchIndex.boundedDistance("nloan", "nolan", 2));
+        assertEquals(3, FuzzySearchIndex.boundedDistance("abc", "xyzabcxyz", 2));
+    }
+
+    @Test
+    void testTypoInLatinTitle() {
+        assertEquals(inception, index.search("Incepton", 10).get(0));
+    }
+
+    @Test
+    void testCyrillicQueryFindsLatinTitle() {
+        assertEquals(interstellar, index.search("Интерстелар", 10).get(0));
+    }
+
+    @Test
+    void testLatinQueryFindsCyrillicTitle() {
+        assertEquals(stalker, index.search("stalker", 10).get(0));
+    }
+
+    @Test
+    void testDirectorTypoReturnsAllMovies() {
+        List<HelloApplication.Movie> found = index.search("Nolna", 10);
+        assertEquals(2, found.size());
+        assertTrue(found.contains(inception));
+        assertTrue(found.contains(interstellar));
+    }
+
+    @Test
+    void testPartialTitleWithTypo() {
+        assertEquals(lotr, index.search("lord of the rigns", 10).get(0));
+        assertEquals(lotr, index.search("lord fo the rigns", 10).get(0));
+        assertEquals(lotr, index.search("lord of teh rigns", 10).get(0));
+    }
+
+    @Test
+    void testMissingSpace() {
+        assertEquals(lotr, index.search("lordof the rings", 10).get(0));
+    }
+
+    @Test
+    void testRemovedMovieNotFound() {
+        index.remove(inception);
+        assertTrue(index.search("Inception", 10).isEmpty());
+    }
+
+    @Test
+    void testUnrelatedQueryFindsNothing() {
+        assertTrue(index.search("Matrix", 10).isEmpty());
+    }
+}
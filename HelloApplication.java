@@ -10,6 +10,7 @@ import javafx.stage.Stage;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
+import java.sql.SQLException;
 import java.util.*;
 
 public class HelloApplication extends Application {
@@ -58,6 +59,8 @@ public class HelloApplication extends Application {
 
 
     List<Movie> movies = new ArrayList<>();
+    FuzzySearchIndex searchIndex = new FuzzySearchIndex();
+    SimilarMoviesIndex similarIndex = new SimilarMoviesIndex();
 
     @Override
     public void start(Stage primaryStage) {
@@ -146,7 +149,27 @@ public class HelloApplication extends Application {
         stage.show();
 
         registerBtn.setOnAction(e -> {
-            // твоя логика регистрации
+            String name = nameField.getText().trim();
+            String email = emailField.getText().trim();
+
+            if (name.isEmpty() || email.isEmpty()) {
+                errorLabel.setText("Пожалуйста, заполните имя и почту.");
+                return;
+            }
+
+            User user;
+            try {
+                user = DatabaseManager.registerUser(name, email);
+            } catch (SQLException ex) {
+                errorLabel.setText("Не удалось сохранить пользователя, попробуйте ещё раз.");
+                return;
+            }
+            if (user == null) {
+                errorLabel.setText("Пользователь с такой почтой уже существует.");
+                return;
+            }
+
+            showMainWindow(stage, user);
         });
 
         backBtn.setOnAction(e -> showAuthWindow(stage));
@@ -215,6 +238,9 @@ public class HelloApplication extends Application {
     // Главное окно приложения с фильмами
     private void showMainWindow(Stage stage, User currentUser) {
         movies = DatabaseManager.loadMovies();
+        ReviewAnalytics.warmUp(movies, DatabaseManager.countReviewsByMovie());
+        searchIndex = new FuzzySearchIndex(movies);
+        similarIndex = SimilarMoviesIndex.build(movies);
 
         ListView<Movie> movieListView = new ListView<>();
 
@@ -247,6 +273,8 @@ public class HelloApplication extends Application {
 
                 Movie movie = new Movie(title, director, year, tags);
                 movies.add(movie);
+                searchIndex.add(movie);
+                similarIndex.add(movie);
                 DatabaseManager.addMovie(movie);
                 refreshMovies(movieListView);
 
@@ -264,6 +292,8 @@ public class HelloApplication extends Application {
             Movie selected = movieListView.getSelectionModel().getSelectedItem();
             if (selected != null) {
                 movies.remove(selected);
+                searchIndex.remove(selected);
+                similarIndex.remove(selected);
                 DatabaseManager.deleteMovie(selected);
                 refreshMovies(movieListView);
             }
@@ -279,9 +309,7 @@ public class HelloApplication extends Application {
                 try {
                     int rating = Integer.parseInt(ratingField.getText().trim());
                     if (rating < 1 || rating > 5) return;
-                    selected.ratings.add(rating);
-                    DatabaseManager.deleteMovie(selected);
-                    DatabaseManager.addMovie(selected);
+                    DatabaseManager.addRating(selected, currentUser, rating);
                     refreshMovies(movieListView);
                     ratingField.clear();
                 } catch (NumberFormatException ignored) {
@@ -294,9 +322,8 @@ public class HelloApplication extends Application {
         favoriteBtn.setOnAction(e -> {
             Movie selected = movieListView.getSelectionModel().getSelectedItem();
             if (selected != null) {
+                // Избранное хранится только в памяти — БД не трогаем, иначе удалятся отзывы
                 selected.favorite = !selected.favorite;
-                DatabaseManager.deleteMovie(selected);
-                DatabaseManager.addMovie(selected);
                 refreshMovies(movieListView);
             }
         });
@@ -307,13 +334,16 @@ public class HelloApplication extends Application {
         Button searchBtn = new Button("Поиск");
         searchBtn.setOnAction(e -> {
             String query = searchField.getText().toLowerCase();
-            movieListView.getItems().setAll(
+            // Точные совпадения по названию/режиссёру/тегам, затем похожие (с опечатками)
+            Set<Movie> found = new LinkedHashSet<>(
                     movies.stream().filter(m ->
                             m.title.toLowerCase().contains(query) ||
                                     m.director.toLowerCase().contains(query) ||
                                     m.tags.stream().anyMatch(tag -> tag.toLowerCase().contains(query))
                     ).toList()
             );
+            found.addAll(searchIndex.search(query, 20));
+            movieListView.getItems().setAll(found);
         });
 
         Button recommendBtn = new Button("Рекомендации (по рейтингу)");
@@ -326,6 +356,20 @@ public class HelloApplication extends Application {
             );
         });
 
+        Button trendingBtn = new Button("В тренде (за час)");
+        trendingBtn.setOnAction(e -> {
+            Map<String, Movie> byKey = new HashMap<>();
+            for (Movie m : movies) {
+                byKey.put(ReviewAnalytics.movieKey(m), m);
+            }
+            movieListView.getItems().setAll(
+                    ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.HOUR, 5).stream()
+                            .map(byKey::get)
+                            .filter(Objects::nonNull)
+                            .toList()
+            );
+        });
+
         Label welcomeLabel = new Label("Привет, " + currentUser.name + "!");
         Button logoutBtn = new Button("Выйти");
         logoutBtn.setOnAction(e -> showAuthWindow(stage));
@@ -341,7 +385,7 @@ public class HelloApplication extends Application {
                 new Label("Фильмы:"), movieListView);
         movieBox.setMinWidth(400);
 
-        VBox searchBox = new VBox(5, searchField, searchBtn, recommendBtn);
+        VBox searchBox = new VBox(5, searchField, searchBtn, recommendBtn, trendingBtn);
         searchBox.setMinWidth(150);
 
         // --- Комментарии ---
@@ -357,21 +401,29 @@ public class HelloApplication extends Application {
             Movie selected = movieListView.getSelectionModel().getSelectedItem();
             if (selected != null && !commentField.getText().trim().isEmpty()) {
                 selected.comments.add(commentField.getText().trim());
-                // DatabaseManager.addReview(selected.comments);
+                DatabaseManager.addReview(selected, currentUser, commentField.getText().trim());
                 commentField.clear();
                 commentsList.getItems().setAll(selected.comments);
             }
         });
 
-        VBox commentsBox = new VBox(5, commentsLabel, commentsList, commentField, addCommentBtn);
+        // --- Похожие фильмы ---
+        Label similarLabel = new Label("Похожие фильмы:");
+        ListView<Movie> similarList = new ListView<>();
+        similarList.setPrefHeight(150);
+
+        VBox commentsBox = new VBox(5, commentsLabel, commentsList, commentField, addCommentBtn,
+                similarLabel, similarList);
         commentsBox.setMinWidth(300);
         commentsBox.setStyle("-fx-padding: 10; -fx-border-color: gray; -fx-border-radius: 5;");
 
         movieListView.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
             if (newSelection != null) {
                 commentsList.getItems().setAll(newSelection.comments);
+                similarList.getItems().setAll(similarIndex.similar(newSelection, 10));
             } else {
                 commentsList.getItems().clear();
+                similarList.getItems().clear();
             }
         });
 
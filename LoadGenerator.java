@@ -0,0 +1,434 @@
+package com.kinoflix.kotik;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Нагрузочный и длительный (soak) прогон без JavaFX: виртуальные пользователи
+// вызывают операции DatabaseManager в заданной пропорции, раз в report секунд
+// печатаются пропускная способность, перцентили задержек, ошибки SQL, SQLITE_BUSY
+// и занятость старого поколения кучи после последней сборки (рост от интервала к интервалу — утечка).
+//
+// Внутри одного процесса все пользователи работают через одно соединение DatabaseManager,
+// и транзакции выстраиваются в очередь ещё в JVM — SQLITE_BUSY там не возникает.
+// Конкуренция за файл видна только при втором писателе: processes=N запускает ещё N-1
+// таких же процессов на ту же базу (их отчёты — в <db>.processK.log), либо рядом можно
+// запустить CatalogReplicator. Ожидание блокировки до busy_timeout (5 с) видно в задержках;
+// SQLITE_BUSY — когда оно превышено или транзакция не может повысить блокировку до записи.
+//
+// Запуск: java com.kinoflix.kotik.LoadGenerator [ключ=значение ...]
+//   db=loadtest.db users=200 duration=3600 report=10 think=50 processes=1
+//   seedUsers=10000 seedMovies=10000
+//   mix=login:20,load:2,search:35,rate:20,review:18,delete:5
+public class LoadGenerator {
+
+    enum Operation {
+        LOGIN("login"),
+        LOAD_MOVIES("load"),
+        SEARCH("search"),
+        RATE("rate"),
+        REVIEW("review"),
+        DELETE_MOVIE("delete");
+
+        final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        static Operation byKey(String key) {
+            for (Operation op : values()) {
+                if (op.key.equals(key)) return op;
+            }
+            throw new IllegalArgumentException("Неизвестная операция: " + key);
+        }
+    }
+
+    // Лог-линейная гистограмма задержек в микросекундах: 16 корзин на каждую степень двойки,
+    // погрешность перцентиля не больше ~6%. Запись без блокировок.
+    static class LatencyHistogram {
+        private static final int SUB_BUCKETS = 16;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long micros) {
+            long v = Math.max(0, micros);
+            counts.incrementAndGet(index(v));
+            total.increment();
+            max.accumulate(v);
+        }
+
+        long count() {
+            return total.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // Верхняя граница корзины, в которую попал перцентиль p (0..100)
+        long percentile(double p) {
+            long n = total.sum();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(n * p / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+            total.reset();
+            max.reset();
+        }
+
+        static int index(long v) {
+            if (v < SUB_BUCKETS) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - 4)) & (SUB_BUCKETS - 1);
+            return (exp - 3) * SUB_BUCKETS + sub;
+        }
+
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int exp = index / SUB_BUCKETS + 3;
+            int sub = index % SUB_BUCKETS;
+            long lower = (long) (SUB_BUCKETS + sub) << (exp - 4);
+            return lower + (1L << (exp - 4)) - 1;
+        }
+    }
+
+    // Параметры прогона
+    static class Config {
+        String db = "loadtest.db";
+        int users = 200;
+        long durationSeconds = 60;
+        long reportSeconds = 10;
+        long thinkMillis = 50;
+        int processes = 1;
+        int seedUsers = 10_000;
+        int seedMovies = 10_000;
+        Map<Operation, Integer> mix = parseMix("login:20,load:2,search:35,rate:20,review:18,delete:5");
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("Ожидается ключ=значение: " + arg);
+                String key = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "db" -> config.db = value;
+                    case "users" -> config.users = Integer.parseInt(value);
+                    case "duration" -> config.durationSeconds = Long.parseLong(value);
+                    case "report" -> config.reportSeconds = Long.parseLong(value);
+                    case "think" -> config.thinkMillis = Long.parseLong(value);
+                    case "processes" -> config.processes = Integer.parseInt(value);
+                    case "seedUsers" -> config.seedUsers = Integer.parseInt(value);
+                    case "seedMovies" -> config.seedMovies = Integer.parseInt(value);
+                    case "mix" -> config.mix = parseMix(value);
+                    default -> throw new IllegalArgumentException("Неизвестный параметр: " + key);
+                }
+            }
+            return config;
+        }
+
+        static Map<Operation, Integer> parseMix(String value) {
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (String part : value.split(",")) {
+                String[] kv = part.trim().split(":");
+                int weight = Integer.parseInt(kv[1].trim());
+                if (weight < 0) throw new IllegalArgumentException("Отрицательный вес: " + part);
+                mix.put(Operation.byKey(kv[0].trim()), weight);
+            }
+            if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+                throw new IllegalArgumentException("Сумма весов mix должна быть больше нуля");
+            }
+            return mix;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "dark", "night", "star", "war", "lord", "ring", "matrix", "dune", "alien", "blade",
+            "runner", "green", "mile", "space", "odyssey", "king", "lion", "story", "return", "empire",
+            "интерстеллар", "брат", "сталкер", "солярис", "зеркало", "операция", "ирония", "судьбы", "москва", "слезам"
+    };
+    private static final String[] TAGS = {"драма", "комедия", "sci-fi", "thriller", "horror", "fantasy", "боевик", "мелодрама"};
+
+    private final Config config;
+    private final Operation[] schedule;   // операции, повторённые по весам
+    private final Map<Operation, LatencyHistogram> interval = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> total = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> intervalErrors = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> totalErrors = new EnumMap<>(Operation.class);
+    private final List<MemoryPoolMXBean> oldGenPools = oldGenPools();
+
+    private List<HelloApplication.Movie> catalog;
+    private List<HelloApplication.User> users;
+    private FuzzySearchIndex searchIndex;
+    private volatile boolean running = true;
+
+    LoadGenerator(Config config) {
+        this.config = config;
+        List<Operation> ops = new ArrayList<>();
+        config.mix.forEach((op, weight) -> {
+            for (int i = 0; i < weight; i++) ops.add(op);
+        });
+        this.schedule = ops.toArray(new Operation[0]);
+        for (Operation op : Operation.values()) {
+            interval.put(op, new LatencyHistogram());
+            total.put(op, new LatencyHistogram());
+            intervalErrors.put(op, new LongAdder());
+            totalErrors.put(op, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        LoadGenerator generator = new LoadGenerator(config);
+        generator.prepareDatabase();
+        List<Process> children = generator.startChildProcesses(args);
+        generator.run();
+        for (Process child : children) {
+            if (!child.waitFor(1, TimeUnit.MINUTES)) child.destroy();
+        }
+    }
+
+    // Остальные processes-1 процессов: база уже заполнена, у каждого своё соединение с файлом
+    private List<Process> startChildProcesses(String[] args) throws IOException {
+        List<Process> children = new ArrayList<>();
+        for (int i = 1; i < config.processes; i++) {
+            File log = new File(config.db + ".process" + i + ".log");
+            children.add(new ProcessBuilder(childCommand(args))
+                    .redirectErrorStream(true)
+                    .redirectOutput(log)
+                    .start());
+            System.out.println("Процесс " + i + ": отчёт в " + log);
+        }
+        return children;
+    }
+
+    static List<String> childCommand(String[] args) {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                LoadGenerator.class.getName()));
+        for (String arg : args) {
+            if (!arg.startsWith("processes=")) command.add(arg);
+        }
+        return command;
+    }
+
+    // Подключение к тестовой базе; пустая база заполняется сгенерированными данными
+    void prepareDatabase() throws SQLException {
+        DatabaseManager.connect("jdbc:sqlite:" + new File(config.db).getAbsolutePath());
+        Random random = new Random(42);
+
+        users = DatabaseManager.loadUsers();
+        if (users.isEmpty()) {
+            System.out.println("Генерация " + config.seedUsers + " пользователей...");
+            for (int i = 0; i < config.seedUsers; i++) {
+                DatabaseManager.registerUser("Пользователь " + i, "user" + i + "@loadtest.kinoflix");
+            }
+            users = DatabaseManager.loadUsers();
+        }
+
+        catalog = DatabaseManager.loadMovies();
+        if (catalog.isEmpty()) {
+            System.out.println("Генерация " + config.seedMovies + " фильмов...");
+            for (int i = 0; i < config.seedMovies; i++) {
+                String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+                List<String> tags = List.of(TAGS[random.nextInt(TAGS.length)], TAGS[random.nextInt(TAGS.length)]);
+                DatabaseManager.addMovie(new HelloApplication.Movie(title, "Режиссёр " + random.nextInt(500),
+                        1950 + random.nextInt(75), tags));
+            }
+            catalog = DatabaseManager.loadMovies();
+        }
+        if (users.isEmpty() || catalog.isEmpty()) {
+            throw new IllegalStateException("Не удалось подготовить базу " + config.db);
+        }
+        searchIndex = new FuzzySearchIndex(catalog);
+        ReviewAnalytics.configure(expectedAnalyticsEventsPerSecond());
+        System.out.printf("База %s: %d пользователей, %d фильмов%n", config.db, users.size(), catalog.size());
+    }
+
+    // Грубая оценка потока оценок и отзывов (каждая операция — не меньше миллисекунды),
+    // чтобы sketch ReviewAnalytics был по размеру нагрузки
+    double expectedAnalyticsEventsPerSecond() {
+        long writes = Arrays.stream(schedule).filter(op -> op == Operation.RATE || op == Operation.REVIEW).count();
+        return (double) config.users * 1000.0 / Math.max(1, config.thinkMillis) * writes / schedule.length;
+    }
+
+    // Пулы старого поколения; если сборщик без поколений (ZGC, Shenandoah) — все пулы кучи
+    private static List<MemoryPoolMXBean> oldGenPools() {
+        List<MemoryPoolMXBean> heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .toList();
+        List<MemoryPoolMXBean> old = heap.stream()
+                .filter(pool -> pool.getName().contains("Old") || pool.getName().contains("Tenured"))
+                .toList();
+        return old.isEmpty() ? heap : old;
+    }
+
+    // Занято в старом поколении сразу после последней его сборки: мусор молодого поколения
+    // сюда не попадает, значение меняется только когда сборщик дошёл до старых объектов
+    long oldGenAfterGc() {
+        return oldGenPools.stream().mapToLong(pool -> pool.getCollectionUsage().getUsed()).sum();
+    }
+
+    void run() throws InterruptedException {
+        System.gc();
+        long baselineOld = oldGenAfterGc();
+        long busyBaseline = DatabaseManager.getBusyErrorCount();
+        long sqlBaseline = DatabaseManager.getSqlErrorCount();
+        long start = System.nanoTime();
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long[] lastReport = {start};
+        long[] lastBusy = {busyBaseline};
+        long[] lastSql = {sqlBaseline};
+        long[] lastOld = {baselineOld};
+        reporter.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            long busy = DatabaseManager.getBusyErrorCount();
+            long sql = DatabaseManager.getSqlErrorCount();
+            long old = oldGenAfterGc();
+            report(String.format("[%4d с]", (now - start) / 1_000_000_000L), interval, intervalErrors,
+                    (now - lastReport[0]) / 1e9, sql - lastSql[0], busy - lastBusy[0],
+                    String.format("старое поколение после GC: %d МБ (%+d МБ за интервал, %+d МБ с начала)",
+                            old >> 20, (old - lastOld[0]) >> 20, (old - baselineOld) >> 20));
+            interval.values().forEach(LatencyHistogram::reset);
+            intervalErrors.values().forEach(LongAdder::reset);
+            lastReport[0] = now;
+            lastBusy[0] = busy;
+            lastSql[0] = sql;
+            lastOld[0] = old;
+        }, config.reportSeconds, config.reportSeconds, TimeUnit.SECONDS);
+
+        ExecutorService pool = newUserExecutor();
+        for (int i = 0; i < config.users; i++) {
+            long seed = i;
+            pool.submit(() -> userLoop(new Random(seed)));
+        }
+
+        Thread.sleep(config.durationSeconds * 1000);
+        running = false;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        reporter.shutdownNow();
+
+        System.out.println("=== Итог ===");
+        // Полная сборка в конце: остаток сравним с базой, снятой так же после System.gc()
+        System.gc();
+        long old = oldGenAfterGc();
+        report("[всего]", total, totalErrors, (System.nanoTime() - start) / 1e9,
+                DatabaseManager.getSqlErrorCount() - sqlBaseline,
+                DatabaseManager.getBusyErrorCount() - busyBaseline,
+                String.format("старое поколение после полной GC: %d МБ (%+d МБ с начала)",
+                        old >> 20, (old - baselineOld) >> 20));
+    }
+
+    // Виртуальные потоки появились в Java 21, проект собирается под 17 — на старых JVM обычные потоки
+    private static ExecutorService newUserExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void userLoop(Random random) {
+        HelloApplication.User user = users.get(random.nextInt(users.size()));
+        while (running) {
+            Operation op = schedule[random.nextInt(schedule.length)];
+            // DatabaseManager глотает SQLException (logError), поэтому ошибки операции —
+            // это ошибки SQL на этом потоке плюс вылетевшие исключения
+            long sqlErrorsBefore = DatabaseManager.getThreadSqlErrorCount();
+            long t0 = System.nanoTime();
+            long failed = 0;
+            try {
+                execute(op, user, random);
+            } catch (RuntimeException e) {
+                failed++;
+            }
+            long micros = (System.nanoTime() - t0) / 1000;
+            failed += DatabaseManager.getThreadSqlErrorCount() - sqlErrorsBefore;
+            interval.get(op).record(micros);
+            total.get(op).record(micros);
+            if (failed > 0) {
+                intervalErrors.get(op).add(failed);
+                totalErrors.get(op).add(failed);
+            }
+
+            if (config.thinkMillis > 0) {
+                try {
+                    Thread.sleep(random.nextLong(config.thinkMillis * 2 + 1));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void execute(Operation op, HelloApplication.User user, Random random) {
+        HelloApplication.Movie movie = catalog.get(random.nextInt(catalog.size()));
+        switch (op) {
+            case LOGIN -> {
+                // Каждый пятый вход — с несуществующей почтой
+                String email = random.nextInt(5) == 0
+                        ? "nobody" + random.nextInt() + "@loadtest.kinoflix"
+                        : users.get(random.nextInt(users.size())).email;
+                DatabaseManager.getUserByEmail(email);
+            }
+            case LOAD_MOVIES -> DatabaseManager.loadMovies();
+            case SEARCH -> searchIndex.search(typo(movie.title, random), 20);
+            case RATE -> {
+                synchronized (movie) {
+                    DatabaseManager.addRating(movie, user, 1 + random.nextInt(5));
+                }
+            }
+            case REVIEW -> DatabaseManager.addReview(movie, user, "Комментарий под нагрузкой " + random.nextInt(1000));
+            case DELETE_MOVIE -> {
+                // Удаляем и сразу возвращаем тот же фильм — только чтобы каталог не пустел
+                synchronized (movie) {
+                    DatabaseManager.deleteMovie(movie);
+                    DatabaseManager.addMovie(movie);
+                }
+            }
+        }
+    }
+
+    private void report(String label, Map<Operation, LatencyHistogram> histograms, Map<Operation, LongAdder> errors,
+                        double seconds, long sqlErrors, long busy, String heap) {
+        long ops = histograms.values().stream().mapToLong(LatencyHistogram::count).sum();
+        System.out.printf("%s %.0f оп/с, ошибок SQL: %d (SQLITE_BUSY: %d), %s%n", label,
+                ops / Math.max(seconds, 1e-9), sqlErrors, busy, heap);
+        for (Operation op : Operation.values()) {
+            LatencyHistogram h = histograms.get(op);
+            if (h.count() == 0) continue;
+            System.out.printf("    %-7s %8d оп  p50=%.2f  p95=%.2f  p99=%.2f  max=%.2f мс  ошибок: %d%n",
+                    op.key, h.count(), h.percentile(50) / 1000.0, h.percentile(95) / 1000.0,
+                    h.percentile(99) / 1000.0, h.max() / 1000.0, errors.get(op).sum());
+        }
+    }
+
+    private static String typo(String title, Random random) {
+        if (title.length() < 2) return title;
+        StringBuilder sb = new StringBuilder(title);
+        sb.deleteCharAt(random.nextInt(sb.length()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.kinoflix.kotik;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTests {
+
+    @Test
+    void testHistogramPercentiles() {
+        LoadGenerator.LatencyHistogram histogram = new LoadGenerator.LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(500, histogram.percentile(50), 500 * 0.07);
+        assertEquals(990, histogram.percentile(99), 990 * 0.07);
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void testHistogramBucketsCoverValue() {
+        for (long v : new long[]{0, 15, 16, 17, 1000, 123_456, 60_000_000}) {
+            int index = LoadGenerator.LatencyHistogram.index(v);
+            assertTrue(LoadGenerator.LatencyHistogram.upperBound(index) >= v, "Корзина для " + v);
+        }
+    }
+
+    @Test
+    void testConfigParse() {
+        LoadGenerator.Config config = LoadGenerator.Config.parse(new String[]{"users=32", "duration=5", "processes=3", "mix=login:3,rate:1"});
+        assertEquals(32, config.users);
+        assertEquals(5, config.durationSeconds);
+        assertEquals(3, config.processes);
+        assertEquals(Map.of(LoadGenerator.Operation.LOGIN, 3, LoadGenerator.Operation.RATE, 1), config.mix);
+    }
+
+    @Test
+    void testExpectedAnalyticsRate() {
+        LoadGenerator.Config config = LoadGenerator.Config.parse(new String[]{"users=100", "think=50", "mix=rate:1,review:1,search:2"});
+        assertEquals(1000.0, new LoadGenerator(config).expectedAnalyticsEventsPerSecond(), 0.001);
+    }
+
+    @Test
+    void testChildProcessesRunSingleProcess() {
+        List<String> command = LoadGenerator.childCommand(new String[]{"db=load.db", "processes=4", "users=10"});
+        assertEquals(LoadGenerator.class.getName(), command.get(command.size() - 3));
+        assertEquals(List.of("db=load.db", "users=10"), command.subList(command.size() - 2, command.size()));
+    }
+
+    @Test
+    void testEveryOperationRunsAgainstGeneratedDatabase() throws Exception {
+        File db = File.createTempFile("kinoflix-load", ".db");
+        db.deleteOnExit();
+        LoadGenerator.Config config = LoadGenerator.Config.parse(new String[]{
+                "db=" + db.getAbsolutePath(), "seedUsers=20", "seedMovies=50"});
+        LoadGenerator generator = new LoadGenerator(config);
+        generator.prepareDatabase();
+
+        Random random = new Random(1);
+        long sqlErrorsBefore = DatabaseManager.getThreadSqlErrorCount();
+        HelloApplication.User user = DatabaseManager.getUserByEmail("user0@loadtest.kinoflix");
+        assertNotNull(user);
+        for (LoadGenerator.Operation op : LoadGenerator.Operation.values()) {
+            generator.execute(op, user, random);
+        }
+        assertEquals(sqlErrorsBefore, DatabaseManager.getThreadSqlErrorCount());
+        assertEquals(50, DatabaseManager.loadMovies().size());
+    }
+}
@@ -0,0 +1,138 @@
+package com.kinoflix.kotik;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegistrationTests {
+
+    private static final int THREADS = 32;
+
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        File db = File.createTempFile("kinoflix-test", ".db");
+        db.deleteOnExit();
+        url = "jdbc:sqlite:" + db.getAbsolutePath();
+        DatabaseManager.connect(url);
+    }
+
+    @Test
+    void testRegisterAndLogin() throws Exception {
+        HelloApplication.User user = DatabaseManager.registerUser("Alice", "alice@example.com");
+        assertNotNull(user);
+        assertEquals(user.id, DatabaseManager.getUserByEmail("alice@example.com").id);
+        assertTrue(DatabaseManager.isEmailExists("alice@example.com"));
+        assertNull(DatabaseManager.getUserByEmail("bob@example.com"));
+        assertFalse(DatabaseManager.isEmailExists("bob@example.com"));
+    }
+
+    @Test
+    void testDuplicateEmailRejected() throws Exception {
+        assertNotNull(DatabaseManager.registerUser("Alice", "alice@example.com"));
+        assertNull(DatabaseManager.registerUser("Alice 2", "alice@example.com"));
+    }
+
+    @Test
+    void testDatabaseErrorIsNotReportedAsTakenEmail() throws Exception {
+        try (Connection other = DriverManager.getConnection(url)) {
+            other.createStatement().execute("DROP TABLE change_log");
+        }
+        SQLException e = assertThrows(SQLException.class, () -> DatabaseManager.registerUser("Alice", "alice@example.com"));
+        assertNotEquals(19, e.getErrorCode());
+        assertTrue(DatabaseManager.loadUsers().isEmpty());
+    }
+
+    @Test
+    void testConcurrentRegistrationsGetUniqueIds() throws Exception {
+        List<HelloApplication.User> users = registerConcurrently(i -> "user" + i + "@example.com");
+
+        Set<Integer> ids = new HashSet<>();
+        for (HelloApplication.User user : users) {
+            assertNotNull(user);
+            assertTrue(ids.add(user.id), "Повторный id " + user.id);
+        }
+        assertEquals(THREADS, DatabaseManager.loadUsers().size());
+    }
+
+    @Test
+    void testConcurrentSameEmailOnlyOneWins() throws Exception {
+        List<HelloApplication.User> users = registerConcurrently(i -> "same@example.com");
+        assertEquals(1, users.stream().filter(Objects::nonNull).count());
+        assertEquals(1, DatabaseManager.loadUsers().size());
+    }
+
+    @Test
+    void testIdsComeFromDatabaseWithSecondWriter() throws Exception {
+        // Второе соединение — как другой процесс: блокировки JVM его не касаются
+        Thread writer = new Thread(() -> {
+            try (Connection other = DriverManager.getConnection(url);
+                 PreparedStatement ps = other.prepareStatement("INSERT INTO users (name, email) VALUES (?, ?)")) {
+                for (int i = 0; i < THREADS; i++) {
+                    ps.setString(1, "Other " + i);
+                    ps.setString(2, "other" + i + "@example.com");
+                    ps.executeUpdate();
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        List<HelloApplication.User> users = registerConcurrently(i -> "user" + i + "@example.com");
+        writer.join();
+
+        for (HelloApplication.User user : users) {
+            assertNotNull(user);
+            assertEquals(user.id, DatabaseManager.getUserByEmail(user.email).id);
+        }
+        assertEquals(2 * THREADS, DatabaseManager.loadUsers().size());
+    }
+
+    @Test
+    void testBloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain("user" + i + "@example.com")) falsePositives++;
+        }
+        assertTrue(falsePositives < 300, "Ложных срабатываний: " + falsePositives);
+    }
+
+    private List<HelloApplication.User> registerConcurrently(IntFunction<String> email) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HelloApplication.User>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int n = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                return DatabaseManager.registerUser("User " + n, email.apply(n));
+            }));
+        }
+        start.countDown();
+
+        List<HelloApplication.User> users = new ArrayList<>();
+        for (Future<HelloApplication.User> future : futures) {
+            users.add(future.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        return users;
+    }
+}
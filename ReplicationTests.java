@@ -0,0 +1,134 @@
+package com.kinoflix.kotik;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationTests {
+
+    private File nodeA;
+    private File nodeB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        nodeA = File.createTempFile("kinoflix-a", ".db");
+        nodeB = File.createTempFile("kinoflix-b", ".db");
+        nodeA.deleteOnExit();
+        nodeB.deleteOnExit();
+    }
+
+    @Test
+    void testPayloadRoundTrip() {
+        Map<String, String> data = Map.of("title", "Ирония судьбы, или С лёгким паром!", "comment", "a=b&c");
+        assertEquals(data, ChangeLog.decode(ChangeLog.encode(data)));
+    }
+
+    @Test
+    void testReplicatesMutationsIdempotently() throws Exception {
+        HelloApplication.Movie inception = new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi"));
+        HelloApplication.Movie dune = new HelloApplication.Movie("Dune", "Villeneuve", 2021, List.of("sci-fi"));
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        HelloApplication.User alice = DatabaseManager.registerUser("Alice", "alice@example.com");
+        DatabaseManager.addMovie(inception);
+        DatabaseManager.addMovie(dune);
+        DatabaseManager.addRating(inception, alice, 5);
+        DatabaseManager.addReview(inception, alice, "Отлично!");
+        DatabaseManager.deleteMovie(dune);
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeB.getAbsolutePath());
+        CatalogReplicator replicator = new CatalogReplicator(nodeA.getAbsolutePath(), 2);
+        CatalogReplicator.Status status = replicator.replicateOnce();
+        assertEquals(6, status.applied);
+        assertEquals(0, status.lagRecords());
+
+        List<HelloApplication.Movie> movies = DatabaseManager.loadMovies();
+        assertEquals(1, movies.size());
+        assertEquals(List.of(5), movies.get(0).ratings);
+        assertEquals(List.of("Alice: Отлично!"), DatabaseManager.loadReviews(inception));
+        assertNotNull(DatabaseManager.getUserByEmail("alice@example.com"));
+
+        // Повторный проход ничего не меняет
+        assertEquals(0, replicator.replicateOnce().applied);
+        assertEquals(1, DatabaseManager.loadMovies().size());
+    }
+
+    @Test
+    void testOwnChangesAreNotAppliedBack() throws Exception {
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        DatabaseManager.addMovie(new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi")));
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeB.getAbsolutePath());
+        assertEquals(1, new CatalogReplicator(nodeA.getAbsolutePath(), 100).replicateOnce().applied);
+
+        // A читает журнал B: там только переписанная запись самого A
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        assertEquals(0, new CatalogReplicator(nodeB.getAbsolutePath(), 100).replicateOnce().applied);
+        assertEquals(1, DatabaseManager.loadMovies().size());
+    }
+
+    @Test
+    void testRatingsFromBothNodesConverge() throws Exception {
+        HelloApplication.Movie inception = new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi"));
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        DatabaseManager.addMovie(inception);
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeB.getAbsolutePath());
+        new CatalogReplicator(nodeA.getAbsolutePath(), 100).replicateOnce();
+        // Объект в окне B загружен до того, как пришла оценка с A
+        HelloApplication.Movie staleOnB = DatabaseManager.loadMovies().get(0);
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        DatabaseManager.addRating(inception, null, 5);
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeB.getAbsolutePath());
+        new CatalogReplicator(nodeA.getAbsolutePath(), 100).replicateOnce();
+        DatabaseManager.addRating(staleOnB, null, 3);
+        assertEquals(List.of(5, 3), DatabaseManager.loadMovies().get(0).ratings);
+
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        new CatalogReplicator(nodeB.getAbsolutePath(), 100).replicateOnce();
+        assertEquals(List.of(5, 3), DatabaseManager.loadMovies().get(0).ratings);
+    }
+
+    @Test
+    void testRatingRecordCarriesOnlyMovieKey() throws Exception {
+        HelloApplication.Movie inception = new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi"));
+        DatabaseManager.connect("jdbc:sqlite:" + nodeA.getAbsolutePath());
+        DatabaseManager.addMovie(inception);
+        for (int i = 0; i < 10; i++) {
+            DatabaseManager.addRating(inception, null, 4);
+        }
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + nodeA.getAbsolutePath())) {
+            List<ChangeLog.Record> records = ChangeLog.readAfter(conn, 0, 100);
+            ChangeLog.Record last = records.get(records.size() - 1);
+            assertEquals(ChangeLog.ADD_RATING, last.op);
+            assertEquals(Map.of("title", "Inception", "director", "Nolan", "year", "2010", "rating", "4"), last.data);
+        }
+    }
+
+    @Test
+    void testUserAddedByOtherConnectionIsVisible() throws Exception {
+        DatabaseManager.connect("jdbc:sqlite:" + nodeB.getAbsolutePath());
+        assertNull(DatabaseManager.getUserByEmail("alice@example.com"));
+
+        // Так пишет CatalogReplicator, запущенный отдельным процессом
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + nodeB.getAbsolutePath());
+             PreparedStatement ps = other.prepareStatement("INSERT INTO users (name, email) VALUES (?, ?)")) {
+            ps.setString(1, "Alice");
+            ps.setString(2, "alice@example.com");
+            ps.executeUpdate();
+        }
+        assertNotNull(DatabaseManager.getUserByEmail("alice@example.com"));
+        assertTrue(DatabaseManager.isEmailExists("alice@example.com"));
+    }
+}
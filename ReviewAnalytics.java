@@ -0,0 +1,347 @@
+package com.kinoflix.kotik;
+
+import java.util.*;
+
+// Потоковая аналитика по отзывам и оценкам.
+// Всё считается инкрементально при записи (addReview / addRating), память ограничена:
+// счётчики в скользящих окнах хранятся в count-min sketch, у каждого окна свой ограниченный
+// набор кандидатов в топ, оценённых по счётчику этого окна.
+// Запросы не трогают таблицу reviews.
+public class ReviewAnalytics {
+
+    public enum Window {
+        HOUR(60, 60_000L),          // 60 корзин по минуте
+        DAY(24, 3_600_000L);        // 24 корзины по часу
+
+        final int buckets;
+        final long bucketMillis;
+
+        Window(int buckets, long bucketMillis) {
+            this.buckets = buckets;
+            this.bucketMillis = bucketMillis;
+        }
+    }
+
+    // Count-min sketch: оценка частоты сверху с ошибкой ~ total * e / width
+    static class CountMinSketch {
+        final int depth, width;
+        final int[][] table;
+        long total;
+
+        CountMinSketch(int depth, int width) {
+            this.depth = depth;
+            this.width = width;
+            this.table = new int[depth][width];
+        }
+
+        void add(String key, int count) {
+            int h = key.hashCode();
+            for (int i = 0; i < depth; i++) {
+                table[i][index(h, i)] += count;
+            }
+            total += count;
+        }
+
+        int estimate(String key) {
+            return estimate(indexes(key));
+        }
+
+        // Ячейки ключа по строкам — одинаковы для всех sketch той же ширины
+        int[] indexes(String key) {
+            int h = key.hashCode();
+            int[] indexes = new int[depth];
+            for (int i = 0; i < depth; i++) {
+                indexes[i] = index(h, i);
+            }
+            return indexes;
+        }
+
+        int estimate(int[] indexes) {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < depth; i++) {
+                min = Math.min(min, table[i][indexes[i]]);
+            }
+            return min;
+        }
+
+        void clear() {
+            for (int[] row : table) Arrays.fill(row, 0);
+            total = 0;
+        }
+
+        private int index(int h, int row) {
+            // Двойное хеширование: h1 + row * h2
+            int h2 = (h >>> 16) | 1;
+            int mixed = h + row * h2;
+            mixed ^= mixed >>> 15;
+            mixed *= 0x2c1b3c6d;
+            mixed ^= mixed >>> 12;
+            return Math.floorMod(mixed, width);
+        }
+    }
+
+    // Скользящее окно: кольцо корзин, в каждой свой sketch.
+    // Кандидаты в топ — не более capacity ключей с наибольшей оценкой за окно; при смене корзины
+    // оценки пересчитываются, так что активность, ушедшая из окна, перестаёт удерживать место
+    static class SlidingWindowCounter {
+        final Window window;
+        final CountMinSketch[] buckets;
+        final long[] bucketEpochs;
+        final int capacity;
+        final Map<String, Long> candidates = new HashMap<>();
+        private String minCandidate;        // null — пересчитать
+        private long scoredEpoch = -1;
+
+        SlidingWindowCounter(Window window, int depth, int width, int capacity) {
+            this.window = window;
+            this.buckets = new CountMinSketch[window.buckets];
+            this.bucketEpochs = new long[window.buckets];
+            this.capacity = capacity;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new CountMinSketch(depth, width);
+                bucketEpochs[i] = -1;
+            }
+        }
+
+        void add(String key, long nowMillis) {
+            long epoch = nowMillis / window.bucketMillis;
+            int slot = (int) (epoch % buckets.length);
+            if (bucketEpochs[slot] != epoch) {
+                buckets[slot].clear();
+                bucketEpochs[slot] = epoch;
+            }
+            buckets[slot].add(key, 1);
+            if (scoredEpoch != epoch) rescore(nowMillis);
+            offer(key, estimate(key, nowMillis));
+        }
+
+        long estimate(String key, long nowMillis) {
+            long epoch = nowMillis / window.bucketMillis;
+            int[] indexes = buckets[0].indexes(key);
+            long sum = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                if (bucketEpochs[i] > epoch - buckets.length && bucketEpochs[i] <= epoch) {
+                    sum += buckets[i].estimate(indexes);
+                }
+            }
+            return sum;
+        }
+
+        Set<String> candidates() {
+            return candidates.keySet();
+        }
+
+        void remove(String key) {
+            if (candidates.remove(key) != null && key.equals(minCandidate)) minCandidate = null;
+        }
+
+        // Ключ попадает в кандидаты, если их меньше capacity или его оценка больше минимальной
+        private void offer(String key, long score) {
+            if (candidates.containsKey(key)) {
+                candidates.put(key, score);
+                if (key.equals(minCandidate)) minCandidate = null;
+                return;
+            }
+            if (candidates.size() < capacity) {
+                candidates.put(key, score);
+                if (minCandidate != null && score < candidates.get(minCandidate)) minCandidate = key;
+                return;
+            }
+            if (minCandidate == null) {
+                long min = Long.MAX_VALUE;
+                for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+                    if (entry.getValue() < min) {
+                        min = entry.getValue();
+                        minCandidate = entry.getKey();
+                    }
+                }
+            }
+            if (score > candidates.get(minCandidate)) {
+                candidates.remove(minCandidate);
+                candidates.put(key, score);
+                minCandidate = null;
+            }
+        }
+
+        private void rescore(long nowMillis) {
+            Iterator<Map.Entry<String, Long>> it = candidates.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                long score = estimate(entry.getKey(), nowMillis);
+                if (score == 0) {
+                    it.remove();
+                } else {
+                    entry.setValue(score);
+                }
+            }
+            minCandidate = null;
+            scoredEpoch = nowMillis / window.bucketMillis;
+        }
+    }
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MIN_SKETCH_WIDTH = 1024;
+    private static final int MAX_SKETCH_WIDTH = 1 << 14;
+    private static final int REVIEW_SKETCH_WIDTH = 8192;
+    private static final int CANDIDATES = 256;
+
+    // Ожидаемый поток событий (отзывы + оценки в секунду), от него зависит ширина sketch
+    private static double eventsPerSecond = 1.0;
+
+    // Активность по фильмам (отзывы + оценки) и по пользователям
+    private static final Map<Window, SlidingWindowCounter> movieActivity = new EnumMap<>(Window.class);
+    private static final Map<Window, SlidingWindowCounter> userActivity = new EnumMap<>(Window.class);
+
+    // Количество отзывов по фильму за всё время (для счётчика комментариев)
+    private static final CountMinSketch reviewCounts = new CountMinSketch(SKETCH_DEPTH, REVIEW_SKETCH_WIDTH);
+
+    // Средняя оценка по тегу: tag -> {сумма, количество}
+    private static final Map<String, long[]> tagRatings = new HashMap<>();
+
+    static {
+        createCounters();
+    }
+
+    // Ширина sketch корзины — вдвое больше ожидаемого числа событий в ней: в каждой строке
+    // в среднем меньше одного чужого события на ячейку, и ошибка суммы по окну остаётся
+    // меньше реальных различий между фильмами. Ширина ограничена MAX_SKETCH_WIDTH
+    // (все окна вместе — до ~45 МБ), выше этого потока точность падает. Сбрасывает счётчики окон.
+    static synchronized void configure(double expectedEventsPerSecond) {
+        eventsPerSecond = expectedEventsPerSecond;
+        createCounters();
+    }
+
+    static int sketchWidth(Window window) {
+        double eventsPerBucket = eventsPerSecond * window.bucketMillis / 1000.0;
+        return (int) Math.min(MAX_SKETCH_WIDTH, Math.max(MIN_SKETCH_WIDTH, Math.ceil(2 * eventsPerBucket)));
+    }
+
+    private static void createCounters() {
+        for (Window w : Window.values()) {
+            movieActivity.put(w, new SlidingWindowCounter(w, SKETCH_DEPTH, sketchWidth(w), CANDIDATES));
+            userActivity.put(w, new SlidingWindowCounter(w, SKETCH_DEPTH, sketchWidth(w), CANDIDATES));
+        }
+    }
+
+    // Ключ фильма — те же уникальные поля, что и в DatabaseManager.getMovieId
+    public static String movieKey(HelloApplication.Movie movie) {
+        return movie.title + "|" + movie.director + "|" + movie.year;
+    }
+
+    // Новый отзыв
+    public static void onReview(HelloApplication.Movie movie, HelloApplication.User user) {
+        onReview(movie, user, System.currentTimeMillis());
+    }
+
+    static synchronized void onReview(HelloApplication.Movie movie, HelloApplication.User user, long nowMillis) {
+        String key = movieKey(movie);
+        reviewCounts.add(key, 1);
+        recordActivity(key, user, nowMillis);
+    }
+
+    // Новая оценка
+    public static void onRating(HelloApplication.Movie movie, HelloApplication.User user, int rating) {
+        onRating(movie, user, rating, System.currentTimeMillis());
+    }
+
+    static synchronized void onRating(HelloApplication.Movie movie, HelloApplication.User user, int rating, long nowMillis) {
+        recordActivity(movieKey(movie), user, nowMillis);
+        addTagRating(movie.tags, rating);
+    }
+
+    // Фильм удалён — убираем его из кандидатов в тренды и обнуляем счётчик отзывов
+    // (DatabaseManager.removeMovie удаляет и отзывы, а фильм с тем же ключом могут добавить снова)
+    public static synchronized void onMovieDeleted(HelloApplication.Movie movie) {
+        String key = movieKey(movie);
+        movieActivity.values().forEach(counter -> counter.remove(key));
+        reviewCounts.add(key, -reviewCounts.estimate(key));
+    }
+
+    // Начальное заполнение из БД: средние по тегам из загруженных фильмов
+    // и число отзывов по фильмам (movieKey -> количество, см. DatabaseManager.countReviewsByMovie)
+    public static synchronized void warmUp(List<HelloApplication.Movie> movies, Map<String, Integer> reviewsByMovie) {
+        tagRatings.clear();
+        reviewCounts.clear();
+        reviewsByMovie.forEach((key, count) -> reviewCounts.add(key, count));
+        for (HelloApplication.Movie movie : movies) {
+            for (int rating : movie.ratings) {
+                addTagRating(movie.tags, rating);
+            }
+        }
+    }
+
+    // Примерное количество отзывов к фильму
+    public static synchronized int reviewCount(HelloApplication.Movie movie) {
+        return reviewCounts.estimate(movieKey(movie));
+    }
+
+    // Топ фильмов по активности за окно (ключи movieKey)
+    public static List<String> trendingMovies(Window window, int limit) {
+        return trendingMovies(window, limit, System.currentTimeMillis());
+    }
+
+    static synchronized List<String> trendingMovies(Window window, int limit, long nowMillis) {
+        return top(movieActivity.get(window), limit, nowMillis);
+    }
+
+    // Самые активные пользователи за окно (id пользователей)
+    public static List<Integer> mostActiveUsers(Window window, int limit) {
+        return mostActiveUsers(window, limit, System.currentTimeMillis());
+    }
+
+    static synchronized List<Integer> mostActiveUsers(Window window, int limit, long nowMillis) {
+        return top(userActivity.get(window), limit, nowMillis).stream()
+                .map(Integer::parseInt)
+                .toList();
+    }
+
+    // Средняя оценка по тегу (0.0, если оценок нет)
+    public static synchronized double tagAverageRating(String tag) {
+        long[] stats = tagRatings.get(tag.toLowerCase());
+        return stats == null || stats[1] == 0 ? 0.0 : (double) stats[0] / stats[1];
+    }
+
+    // Сброс всех счётчиков и ожидаемого потока событий
+    static synchronized void reset() {
+        eventsPerSecond = 1.0;
+        createCounters();
+        reviewCounts.clear();
+        tagRatings.clear();
+    }
+
+    private static void recordActivity(String movieKey, HelloApplication.User user, long nowMillis) {
+        for (SlidingWindowCounter counter : movieActivity.values()) {
+            counter.add(movieKey, nowMillis);
+        }
+
+        if (user != null) {
+            String userKey = String.valueOf(user.id);
+            for (SlidingWindowCounter counter : userActivity.values()) {
+                counter.add(userKey, nowMillis);
+            }
+        }
+    }
+
+    private static void addTagRating(List<String> tags, int rating) {
+        for (String tag : tags) {
+            long[] stats = tagRatings.computeIfAbsent(tag.toLowerCase(), t -> new long[2]);
+            stats[0] += rating;
+            stats[1]++;
+        }
+    }
+
+    private static List<String> top(SlidingWindowCounter counter, int limit, long nowMillis) {
+        List<Map.Entry<String, Long>> scored = new ArrayList<>();
+        for (String key : counter.candidates()) {
+            long estimate = counter.estimate(key, nowMillis);
+            if (estimate > 0) {
+                scored.add(Map.entry(key, estimate));
+            }
+        }
+        scored.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return scored.stream()
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
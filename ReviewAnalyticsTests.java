@@ -0,0 +1,136 @@
+package com.kinoflix.kotik;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReviewAnalyticsTests {
+
+    private static final long HOUR = 3_600_000L;
+
+    private final HelloApplication.Movie inception = new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi", "thriller"));
+    private final HelloApplication.Movie dune = new HelloApplication.Movie("Dune", "Villeneuve", 2021, List.of("sci-fi"));
+    private final HelloApplication.User alice = new HelloApplication.User(1, "Alice", "alice@example.com");
+    private final HelloApplication.User bob = new HelloApplication.User(2, "Bob", "bob@example.com");
+
+    @BeforeEach
+    void setUp() {
+        ReviewAnalytics.reset();
+    }
+
+    @Test
+    void testReviewCount() {
+        ReviewAnalytics.onReview(inception, alice, 0);
+        ReviewAnalytics.onReview(inception, bob, 0);
+        ReviewAnalytics.onReview(dune, bob, 0);
+        assertEquals(2, ReviewAnalytics.reviewCount(inception));
+        assertEquals(1, ReviewAnalytics.reviewCount(dune));
+    }
+
+    @Test
+    void testTrendingMoviesOrder() {
+        long now = 10 * HOUR;
+        ReviewAnalytics.onReview(dune, alice, now);
+        for (int i = 0; i < 3; i++) {
+            ReviewAnalytics.onRating(inception, bob, 5, now);
+        }
+        List<String> trending = ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.HOUR, 10, now);
+        assertEquals(List.of(ReviewAnalytics.movieKey(inception), ReviewAnalytics.movieKey(dune)), trending);
+    }
+
+    @Test
+    void testHourWindowExpires() {
+        long start = 10 * HOUR;
+        ReviewAnalytics.onReview(inception, alice, start);
+        assertEquals(1, ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.HOUR, 10, start + HOUR / 2).size());
+        assertTrue(ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.HOUR, 10, start + 2 * HOUR).isEmpty());
+        assertEquals(1, ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.DAY, 10, start + 2 * HOUR).size());
+    }
+
+    @Test
+    void testMostActiveUsers() {
+        ReviewAnalytics.onReview(inception, bob, 0);
+        ReviewAnalytics.onReview(dune, bob, 0);
+        ReviewAnalytics.onReview(dune, alice, 0);
+        assertEquals(List.of(2, 1), ReviewAnalytics.mostActiveUsers(ReviewAnalytics.Window.DAY, 10, 0));
+    }
+
+    @Test
+    void testTagAverageRating() {
+        ReviewAnalytics.onRating(inception, alice, 5, 0);
+        ReviewAnalytics.onRating(dune, bob, 3, 0);
+        assertEquals(4.0, ReviewAnalytics.tagAverageRating("sci-fi"), 0.001);
+        assertEquals(5.0, ReviewAnalytics.tagAverageRating("Thriller"), 0.001);
+        assertEquals(0.0, ReviewAnalytics.tagAverageRating("drama"));
+    }
+
+    @Test
+    void testWarmUpSeedsTagAverages() {
+        dune.ratings.addAll(List.of(2, 4));
+        ReviewAnalytics.warmUp(List.of(dune), Map.of());
+        assertEquals(3.0, ReviewAnalytics.tagAverageRating("sci-fi"), 0.001);
+    }
+
+    @Test
+    void testWarmUpSeedsReviewCounts() {
+        ReviewAnalytics.onReview(dune, alice, 0);
+        ReviewAnalytics.warmUp(List.of(inception, dune), Map.of(ReviewAnalytics.movieKey(inception), 3));
+        assertEquals(3, ReviewAnalytics.reviewCount(inception));
+        assertEquals(0, ReviewAnalytics.reviewCount(dune));
+        ReviewAnalytics.onReview(inception, bob, 0);
+        assertEquals(4, ReviewAnalytics.reviewCount(inception));
+    }
+
+    @Test
+    void testDeletedMovieLeavesTrending() {
+        ReviewAnalytics.onReview(inception, alice, 0);
+        ReviewAnalytics.onMovieDeleted(inception);
+        assertTrue(ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.DAY, 10, 0).isEmpty());
+    }
+
+    @Test
+    void testBurstAfterLongHistoryIsTrending() {
+        ReviewAnalytics.configure(2.0);
+        Random random = new Random(7);
+        List<HelloApplication.Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            catalog.add(new HelloApplication.Movie("Movie " + i, "Director", 2000, List.of()));
+        }
+        HelloApplication.Movie burst = catalog.get(12_345);
+
+        // Сутки фона по 2 события в секунду, в последний час — ещё 24 события одного фильма
+        long end = 24 * HOUR;
+        for (long t = 0; t < end; t += 500) {
+            ReviewAnalytics.onReview(catalog.get(random.nextInt(catalog.size())), null, t);
+            if (t >= end - HOUR && t % (HOUR / 24) == 0) {
+                ReviewAnalytics.onReview(burst, null, t);
+            }
+        }
+        List<String> trending = ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.HOUR, 5, end - 1);
+        assertEquals(ReviewAnalytics.movieKey(burst), trending.get(0));
+        assertEquals(ReviewAnalytics.movieKey(burst), ReviewAnalytics.trendingMovies(ReviewAnalytics.Window.DAY, 5, end - 1).get(0));
+    }
+
+    @Test
+    void testSketchWidthFollowsEventRate() {
+        ReviewAnalytics.configure(10.0);
+        assertEquals(1200, ReviewAnalytics.sketchWidth(ReviewAnalytics.Window.HOUR));
+        assertEquals(16_384, ReviewAnalytics.sketchWidth(ReviewAnalytics.Window.DAY));   // 72 000 упирается в предел
+    }
+
+    @Test
+    void testReviewCountResetsWhenMovieDeleted() {
+        ReviewAnalytics.onReview(inception, alice, 0);
+        ReviewAnalytics.onReview(inception, bob, 0);
+        ReviewAnalytics.onMovieDeleted(inception);
+        assertEquals(0, ReviewAnalytics.reviewCount(inception));
+        ReviewAnalytics.onReview(inception, alice, 0);
+        assertEquals(1, ReviewAnalytics.reviewCount(inception));
+    }
+}
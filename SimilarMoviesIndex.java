@@ -0,0 +1,305 @@
+package com.kinoflix.kotik;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+// "Похожие фильмы" по содержимому: теги, режиссёр и год.
+// Каждый фильм — множество признаков, для него считается MinHash-подпись,
+// подпись режется на полосы (LSH), фильмы с совпавшей полосой — кандидаты.
+// Кандидаты ранжируются по точному Жаккару признаков и близости года.
+public class SimilarMoviesIndex {
+
+    private static final int BANDS = 32;
+    private static final int ROWS = 2;
+    private static final int HASHES = BANDS * ROWS;
+    private static final int MAX_CANDIDATES = 1000;
+    private static final int PARALLEL_THRESHOLD = 2048;
+    private static final int MIN_COMPACT = 1024;
+
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        Random random = new Random(20240101L);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong() | 1L;
+        }
+    }
+
+    // Растущий массив int без упаковки
+    private static class IntList {
+        int[] data = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (data[i] == value) {
+                    System.arraycopy(data, i + 1, data, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Подсчёт признаков и подписей для части каталога
+    private static class SignatureTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final List<HelloApplication.Movie> movies;
+        final int[][] features, signatures;
+        final int from, to;
+
+        SignatureTask(List<HelloApplication.Movie> movies, int[][] features, int[][] signatures, int from, int to) {
+            this.movies = movies;
+            this.features = features;
+            this.signatures = signatures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    features[i] = features(movies.get(i));
+                    signatures[i] = signature(features[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SignatureTask(movies, features, signatures, from, mid),
+                    new SignatureTask(movies, features, signatures, mid, to));
+        }
+    }
+
+    private final List<HelloApplication.Movie> movies = new ArrayList<>();   // null — удалён
+    private final List<int[]> features = new ArrayList<>();
+    private final List<int[]> signatures = new ArrayList<>();
+    private int removed;                 // удалённых слотов до следующего сжатия
+    private final Map<HelloApplication.Movie, Integer> ids = new IdentityHashMap<>();
+    private final List<Map<Long, IntList>> bands = new ArrayList<>();
+    private int[] seen = new int[0];     // отметки "уже кандидат" по номеру запроса
+    private int queryStamp;
+
+    public SimilarMoviesIndex() {
+        for (int b = 0; b < BANDS; b++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    // Параллельное построение индекса по всему каталогу (fork-join)
+    public static SimilarMoviesIndex build(List<HelloApplication.Movie> catalog) {
+        SimilarMoviesIndex index = new SimilarMoviesIndex();
+        List<HelloApplication.Movie> unique = new ArrayList<>();
+        Set<HelloApplication.Movie> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (HelloApplication.Movie movie : catalog) {
+            if (seen.add(movie)) unique.add(movie);
+        }
+
+        int n = unique.size();
+        int[][] features = new int[n][];
+        int[][] signatures = new int[n][];
+        ForkJoinPool.commonPool().invoke(new SignatureTask(unique, features, signatures, 0, n));
+
+        for (int i = 0; i < n; i++) {
+            index.movies.add(unique.get(i));
+            index.features.add(features[i]);
+            index.signatures.add(signatures[i]);
+            index.ids.put(unique.get(i), i);
+        }
+        // Каждая полоса — своя хеш-таблица, заполняем их независимо
+        IntStream.range(0, BANDS).parallel().forEach(b -> {
+            Map<Long, IntList> buckets = index.bands.get(b);
+            for (int i = 0; i < n; i++) {
+                buckets.computeIfAbsent(bandKey(signatures[i], b), k -> new IntList()).add(i);
+            }
+        });
+        return index;
+    }
+
+    public synchronized void add(HelloApplication.Movie movie) {
+        if (ids.containsKey(movie)) return;
+        int[] movieFeatures = features(movie);
+        insert(movie, movieFeatures, signature(movieFeatures));
+    }
+
+    private void insert(HelloApplication.Movie movie, int[] movieFeatures, int[] signature) {
+        int id = movies.size();
+        movies.add(movie);
+        features.add(movieFeatures);
+        signatures.add(signature);
+        ids.put(movie, id);
+        for (int b = 0; b < BANDS; b++) {
+            bands.get(b).computeIfAbsent(bandKey(signature, b), k -> new IntList()).add(id);
+        }
+    }
+
+    // Фильм убирается из корзин сразу; освободившиеся слоты сжимаются,
+    // когда их становится больше, чем живых фильмов
+    public synchronized void remove(HelloApplication.Movie movie) {
+        Integer id = ids.remove(movie);
+        if (id == null) return;
+        int[] signature = signatures.get(id);
+        for (int b = 0; b < BANDS; b++) {
+            long key = bandKey(signature, b);
+            IntList bucket = bands.get(b).get(key);
+            bucket.remove(id);
+            if (bucket.size == 0) bands.get(b).remove(key);
+        }
+        movies.set(id, null);
+        features.set(id, null);
+        signatures.set(id, null);
+        if (++removed >= MIN_COMPACT && removed > ids.size()) compact();
+    }
+
+    // Перенумерация живых фильмов подряд, подписи не пересчитываются
+    private void compact() {
+        List<HelloApplication.Movie> liveMovies = new ArrayList<>(ids.size());
+        List<int[]> liveFeatures = new ArrayList<>(ids.size());
+        List<int[]> liveSignatures = new ArrayList<>(ids.size());
+        for (int i = 0; i < movies.size(); i++) {
+            if (movies.get(i) == null) continue;
+            liveMovies.add(movies.get(i));
+            liveFeatures.add(features.get(i));
+            liveSignatures.add(signatures.get(i));
+        }
+        movies.clear();
+        features.clear();
+        signatures.clear();
+        ids.clear();
+        bands.forEach(Map::clear);
+        removed = 0;
+        for (int i = 0; i < liveMovies.size(); i++) {
+            insert(liveMovies.get(i), liveFeatures.get(i), liveSignatures.get(i));
+        }
+    }
+
+    // Занятые слоты, включая ещё не сжатые удалённые (для тестов)
+    synchronized int slots() {
+        return movies.size();
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    // Топ похожих фильмов (сам фильм в результат не входит)
+    public synchronized List<HelloApplication.Movie> similar(HelloApplication.Movie movie, int limit) {
+        Integer selfId = ids.get(movie);
+        int[] queryFeatures = selfId != null ? features.get(selfId) : features(movie);
+        int[] querySignature = selfId != null ? signatures.get(selfId) : signature(queryFeatures);
+
+        // Сначала самые узкие (специфичные) корзины, пока не наберём кандидатов
+        List<IntList> buckets = new ArrayList<>(BANDS);
+        for (int b = 0; b < BANDS; b++) {
+            IntList bucket = bands.get(b).get(bandKey(querySignature, b));
+            if (bucket != null) buckets.add(bucket);
+        }
+        buckets.sort(Comparator.comparingInt(l -> l.size));
+
+        if (seen.length < movies.size()) {
+            seen = new int[movies.size() * 2];
+            queryStamp = 0;
+        }
+        if (++queryStamp == 0) {
+            Arrays.fill(seen, 0);
+            queryStamp = 1;
+        }
+
+        PriorityQueue<double[]> top = new PriorityQueue<>(Comparator.comparingDouble(e -> e[1]));
+        int candidates = 0;
+        outer:
+        for (IntList bucket : buckets) {
+            for (int i = 0; i < bucket.size; i++) {
+                int id = bucket.data[i];
+                if (seen[id] == queryStamp) continue;
+                seen[id] = queryStamp;
+                HelloApplication.Movie other = movies.get(id);
+                if (other == null || other == movie) continue;
+                double score = jaccard(queryFeatures, features.get(id))
+                        + 0.1 * Math.max(0.0, 1.0 - Math.abs(other.year - movie.year) / 20.0);
+                top.add(new double[]{id, score});
+                if (top.size() > limit) top.poll();
+                if (++candidates >= MAX_CANDIDATES) break outer;
+            }
+        }
+
+        List<HelloApplication.Movie> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(movies.get((int) top.poll()[0]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // Признаки фильма: теги, режиссёр, десятилетие; хеши отсортированы без повторов
+    static int[] features(HelloApplication.Movie movie) {
+        int[] hashes = new int[movie.tags.size() + 2];
+        int n = 0;
+        for (String tag : movie.tags) {
+            String t = tag.trim().toLowerCase();
+            if (!t.isEmpty()) hashes[n++] = ("tag:" + t).hashCode();
+        }
+        hashes[n++] = ("director:" + movie.director.trim().toLowerCase()).hashCode();
+        hashes[n++] = ("decade:" + movie.year / 10).hashCode();
+        Arrays.sort(hashes, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || hashes[unique - 1] != hashes[i]) hashes[unique++] = hashes[i];
+        }
+        return Arrays.copyOf(hashes, unique);
+    }
+
+    static int[] signature(int[] features) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int feature : features) {
+            for (int i = 0; i < HASHES; i++) {
+                int h = (int) (mix(feature * SEEDS[i]) >>> 33);
+                if (h < signature[i]) signature[i] = h;
+            }
+        }
+        return signature;
+    }
+
+    static double jaccard(int[] a, int[] b) {
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - common;
+        return union == 0 ? 0.0 : (double) common / union;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int r = 0; r < ROWS; r++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[band * ROWS + r];
+        }
+        return mix(key);
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
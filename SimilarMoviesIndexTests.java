@@ -0,0 +1,74 @@
+package com.kinoflix.kotik;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimilarMoviesIndexTests {
+
+    private final HelloApplication.Movie inception = new HelloApplication.Movie("Inception", "Nolan", 2010, List.of("sci-fi", "thriller"));
+    private final HelloApplication.Movie interstellar = new HelloApplication.Movie("Interstellar", "Nolan", 2014, List.of("sci-fi", "drama"));
+    private final HelloApplication.Movie tenet = new HelloApplication.Movie("Tenet", "Nolan", 2018, List.of("sci-fi", "thriller"));
+    private final HelloApplication.Movie irony = new HelloApplication.Movie("Ирония судьбы", "Рязанов", 1975, List.of("комедия"));
+
+    @Test
+    void testJaccard() {
+        assertEquals(1.0, SimilarMoviesIndex.jaccard(new int[]{1, 2, 3}, new int[]{1, 2, 3}));
+        assertEquals(0.5, SimilarMoviesIndex.jaccard(new int[]{1, 2, 3}, new int[]{2, 3, 4}), 0.001);
+        assertEquals(0.0, SimilarMoviesIndex.jaccard(new int[]{1}, new int[]{2}));
+    }
+
+    @Test
+    void testSimilarExcludesSelfAndRanksByOverlap() {
+        SimilarMoviesIndex index = SimilarMoviesIndex.build(List.of(inception, interstellar, tenet, irony));
+        List<HelloApplication.Movie> similar = index.similar(inception, 10);
+        assertFalse(similar.contains(inception));
+        assertFalse(similar.contains(irony));
+        assertEquals(tenet, similar.get(0));
+    }
+
+    @Test
+    void testIncrementalAddAndRemove() {
+        SimilarMoviesIndex index = SimilarMoviesIndex.build(List.of(inception, irony));
+        index.add(tenet);
+        assertEquals(List.of(tenet), index.similar(inception, 10));
+
+        index.remove(tenet);
+        assertTrue(index.similar(inception, 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testChurnKeepsIndexBounded() {
+        SimilarMoviesIndex index = SimilarMoviesIndex.build(List.of(inception, irony));
+        for (int i = 0; i < 10_000; i++) {
+            HelloApplication.Movie movie = new HelloApplication.Movie("Copy " + i, "Nolan", 2012, List.of("sci-fi", "thriller"));
+            index.add(movie);
+            index.remove(movie);
+        }
+        index.add(tenet);
+        assertEquals(List.of(tenet), index.similar(inception, 10));
+        assertEquals(3, index.size());
+        assertTrue(index.slots() < 2 * 1024, "Слотов: " + index.slots());
+    }
+
+    @Test
+    void testParallelBuildMatchesIncremental() {
+        List<HelloApplication.Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            catalog.add(new HelloApplication.Movie("Movie " + i, "Director " + (i % 50), 1950 + i % 70,
+                    List.of("tag" + (i % 30), "tag" + (i % 7))));
+        }
+        SimilarMoviesIndex parallel = SimilarMoviesIndex.build(catalog);
+        SimilarMoviesIndex incremental = new SimilarMoviesIndex();
+        catalog.forEach(incremental::add);
+
+        for (int i = 0; i < 100; i++) {
+            HelloApplication.Movie movie = catalog.get(i * 97);
+            assertEquals(incremental.similar(movie, 10), parallel.similar(movie, 10));
+        }
+    }
+}